@@ -1,13 +1,38 @@
 package comp3111.examsystem;
 
+import comp3111.examsystem.model.Grade;
+import comp3111.examsystem.service.CompactionPolicy;
+import comp3111.examsystem.service.Compactor;
+import comp3111.examsystem.service.Database;
+import comp3111.examsystem.service.GradeStatistics;
+import comp3111.examsystem.service.Transaction;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
 
 public class Main extends Application {
 	public void start(Stage primaryStage) {
+		// keep tables in memory between screens; edits made outside the app are still picked up
+		Database.setResidentMode(true);
+		// grades are only ever added on submission, so keep them as a log instead of rewriting the file
+		Database.setAppendOnly(Grade.class, true);
+		// finish or discard a transaction that was cut short when the app last stopped
+		try {
+			Transaction.recover();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		// load the quiz full scores now, so they follow every quiz and question change from here on
+		GradeStatistics.open().refresh();
+		// reclaim superseded grade records once half the log is dead or it passes 8 MB
+		Compactor compactor = new Compactor(new CompactionPolicy(0.5, 8L * 1024 * 1024, 100));
+		compactor.register(new Database<>(Grade.class));
+		compactor.start(5, TimeUnit.MINUTES);
 		try {
 			FXMLLoader fxmlLoader = new FXMLLoader(Main.class.getResource("LoginUI.fxml"));
 			Scene scene = new Scene(fxmlLoader.load(), 640, 480);
@@ -18,6 +43,11 @@ public class Main extends Application {
 		}
 	}
 	
+	@Override
+	public void stop() {
+		GradeStatistics.open().flush();
+	}
+
 	public static void main(String[] args) {
 		launch(args);
 	}
@@ -12,7 +12,9 @@ import javafx.scene.layout.AnchorPane;
 
 import comp3111.examsystem.service.Database;
 import comp3111.examsystem.service.MsgSender;
+import comp3111.examsystem.service.Transaction;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -448,44 +450,42 @@ public class CourseManagementController {
      */
     public void deleteCourseAndQuizzes(Course course, List<Quiz> quizzesToDelete)
     {
-        // delete the grades associated with the quizzes first
-
-        for (Grade grade: allGrades)
+        // stage the whole cascade so a failed step or a crash cannot leave orphaned grades or
+        // quizzes behind; a step that throws leaves the block uncommitted, which rolls it all back
+        try (Transaction transaction = Transaction.begin())
         {
-            for (Quiz quiz : quizzesToDelete)
+            // delete the grades associated with the quizzes first
+            List<String> gradeIds = new ArrayList<>();
+            for (Grade grade: allGrades)
             {
-                if (Long.parseLong(grade.getQuestionId()) == quiz.getId())
+                for (Quiz quiz : quizzesToDelete)
                 {
-                    try
+                    if (Long.parseLong(grade.getQuestionId()) == quiz.getId())
                     {
-                        String idString = String.valueOf(grade.getID());
-                        gradeDatabase.delByKey(idString);
-                    }catch (Exception e)
-                    {
-                        MsgSender.showMsg("Error deleting grades");
-                        e.printStackTrace();
+                        gradeIds.add(String.valueOf(grade.getID()));
                     }
                 }
             }
-        }
+            gradeDatabase.deleteByKeys(gradeIds);
 
-
-        // next, try to delete the quizzes
-        for (Quiz quiz : quizzesToDelete)
-        {
-            try
-            {
-                String idString = String.valueOf(quiz.getId());
-                quizDatabase.delByKey(idString);
-            }catch (Exception e)
+            // next, delete the quizzes
+            List<String> quizIds = new ArrayList<>();
+            for (Quiz quiz : quizzesToDelete)
             {
-                MsgSender.showMsg("Error deleting quizzes");
-                e.printStackTrace();
+                quizIds.add(String.valueOf(quiz.getId()));
             }
-        }
-        // then delete the course
-        deleteCourseFromDatabase(course);
+            quizDatabase.deleteByKeys(quizIds);
 
+            // then delete the course
+            courseDatabase.delByKey(String.valueOf(course.getId()));
+            transaction.commit();
+        }catch (IOException | RuntimeException e)
+        {
+            MsgSender.showMsg("Error deleting course");
+            e.printStackTrace();
+            return;
+        }
+        MsgSender.showMsg("Course deleted successfully");
     }
 
 
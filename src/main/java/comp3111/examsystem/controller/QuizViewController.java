@@ -4,6 +4,7 @@ import comp3111.examsystem.model.Grade;
 import comp3111.examsystem.model.Question;
 import comp3111.examsystem.model.Quiz;
 import comp3111.examsystem.model.Student;
+import comp3111.examsystem.service.ColumnType;
 import comp3111.examsystem.service.Database;
 import comp3111.examsystem.service.MsgSender;
 import javafx.application.Platform;
@@ -223,7 +224,7 @@ public class QuizViewController implements Initializable {
             // Get the next question description
             questionDesc = allQuestionDesc.get(currentQuestionIndex);
             // Update the question details in the UI
-            currQuestion = questionDatabase.queryByField("questionDescription", questionDesc).get(0);
+            currQuestion = questionDatabase.findFirst("questionDescription", questionDesc).orElseThrow();
             question.setText(questionDesc);
             currQNum.setText("Question " + (currentQuestionIndex + 1));
 
@@ -253,7 +254,7 @@ public class QuizViewController implements Initializable {
 
         try {
             // Query the database for the first question and set its answer descriptions
-            currQuestion = questionDatabase.queryByField("questionDescription", questionDesc).getFirst();
+            currQuestion = questionDatabase.findFirst("questionDescription", questionDesc).orElseThrow();
             setAnsDescriptions(currQuestion);
 
             // Add a listener to update the UI when a different question is selected from the list
@@ -262,7 +263,7 @@ public class QuizViewController implements Initializable {
                 public void changed(ObservableValue<? extends String> observableValue, String s, String t1) {
                     // Update the question description and UI elements based on the selected question
                     questionDesc = questionList.getSelectionModel().getSelectedItem();
-                    currQuestion = questionDatabase.queryByField("questionDescription", questionDesc).getFirst();
+                    currQuestion = questionDatabase.findFirst("questionDescription", questionDesc).orElseThrow();
                     question.setText(questionDesc);
                     currQNum.setText("Question " + (allQuestionDesc.indexOf(questionDesc) + 1));
                     currentQuestionIndex = allQuestionDesc.indexOf(questionDesc);
@@ -303,7 +304,7 @@ public class QuizViewController implements Initializable {
 
         totalNumQ = questionIds.length;
         for(int i = 0; i < questionIds.length; ++i){
-            Question q = questionDatabase.queryByField("id", questionIds[i]).get(0);
+            Question q = questionDatabase.findFirst("id", questionIds[i]).orElseThrow();
             allQuestionDesc.add(q.questionDescription);
         }
         questionList.getItems().addAll(allQuestionDesc);
@@ -395,8 +396,12 @@ public class QuizViewController implements Initializable {
         try {
             for (int i = 0; i < questionIds.length; ++i) {
                 // Fetch the question from the database
-                Question ques = questionDatabase.queryByField("id", questionIds[i]).getFirst();
-                totalScore += Integer.parseInt(ques.getQuestionScore());
+                Question ques = questionDatabase.findFirst("id", questionIds[i]).orElseThrow();
+                int questionScore = ques.getQuestionScoreValue();
+                if (questionScore == ColumnType.NO_INT) {
+                    questionScore = 0; // a score that is not a number counts for nothing
+                }
+                totalScore += questionScore;
                 List<String> choices = selectedAnswers.get(Long.parseLong(questionIds[i]));
                 if (choices != null) {
                     Collections.sort(choices);
@@ -406,15 +411,15 @@ public class QuizViewController implements Initializable {
                     }
                     // Check if the selected answer matches the correct answer
                     if (ans.equals(ques.getAnswer())) {
-                        score += Integer.parseInt(ques.getQuestionScore());
+                        score += questionScore;
                         numOfCorrect += 1;
                     }
                 }
             }
             // Calculate the time used for the quiz
             Long usedTime = ((endTime - startTime) / 1000) / 60;
-            if (usedTime >= Long.parseLong(currentQuiz.getQuizTime())) {
-                usedTime = Long.parseLong(currentQuiz.getQuizTime());
+            if (currentQuiz.getQuizTimeValue() != ColumnType.NO_INT && usedTime >= currentQuiz.getQuizTimeValue()) {
+                usedTime = (long) currentQuiz.getQuizTimeValue();
             }
             // Create a new Grade object and add it to the database
             Grade tmp = new Grade(
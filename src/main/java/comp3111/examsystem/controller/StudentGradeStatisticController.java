@@ -1,7 +1,9 @@
 package comp3111.examsystem.controller;
 
 import comp3111.examsystem.model.*;
+import comp3111.examsystem.service.ColumnType;
 import comp3111.examsystem.service.Database;
+import comp3111.examsystem.service.Join;
 import comp3111.examsystem.service.MsgSender;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -31,6 +33,7 @@ public class StudentGradeStatisticController implements Initializable {
         private final String courseName;
         private final String examName;
         private final String score;
+        private final int scoreValue;
         private final String fullScore;
         private final String timeSpent;
 
@@ -41,6 +44,7 @@ public class StudentGradeStatisticController implements Initializable {
             this.courseName = courseName;
             this.examName = examName;
             this.score = score;
+            this.scoreValue = ColumnType.toInt(score);
             this.fullScore = fullScore;
             this.timeSpent = timeSpent;
         }
@@ -72,6 +76,15 @@ public class StudentGradeStatisticController implements Initializable {
             return score;
         }
 
+        /**
+         * Gets the score as a number, parsed once when the row was made.
+         *
+         * @return the score, or ColumnType.NO_INT if it is not a number
+         */
+        public int getScoreValue() {
+            return scoreValue;
+        }
+
         /**
          * Gets the full score.
          *
@@ -174,8 +187,11 @@ public class StudentGradeStatisticController implements Initializable {
 
             // Populate data for the current student
             for (GradeTableRow row : gradeRows) {
+                if (row.getScoreValue() == ColumnType.NO_INT) {
+                    continue; // no bar for a score that is not a number
+                }
                 String examName = row.getExamName();
-                Number score = Integer.parseInt(row.getScore());
+                Number score = row.getScoreValue();
                 series.getData().add(new XYChart.Data<>(examName, score));
             }
 
@@ -192,26 +208,21 @@ public class StudentGradeStatisticController implements Initializable {
      */
     public void showCourses() {
         try {
-            // Iterate through all grades in the database
-            for (int i = 0; i < gradeDatabase.getAll().size(); ++i) {
-                Grade grade = gradeDatabase.getAll().get(i);
-                // Check if the grade belongs to the current student
+            // Collect the grades of the current student
+            List<Grade> studentGrades = new ArrayList<>();
+            for (Grade grade : gradeDatabase.getAll()) {
                 if (grade.getStudentId().equals(String.valueOf(currStudent.getId()))) {
-                    // Query the database for quizzes associated with the grade
-                    List<Quiz> quizzes = quizDatabase.queryByField("id", grade.getQuestionId());
-                    if (quizzes.isEmpty()) {
-                        continue; // Skip this grade if no quiz is found
-                    }
-                    Quiz q = quizzes.getFirst();
-                    // Iterate through all courses in the database
-                    for (Course c : courseDatabase.getAll()) {
-                        // Check if the course is associated with the quiz
-                        if (c.getCourseID().equals(q.getCourseID())) {
-                            coursesList.add(c.getCourseID());
-                        }
-                    }
+                    studentGrades.add(grade);
                 }
             }
+            // Join each grade to its quiz, then each quiz to its course
+            List<Quiz> quizzes = new ArrayList<>();
+            for (Join.Row<Grade, Quiz> row : Join.hashJoin(studentGrades, "questionId", quizDatabase.getAll(), "id")) {
+                quizzes.add(row.getRight());
+            }
+            for (Join.Row<Quiz, Course> row : Join.hashJoin(quizzes, "courseID", courseDatabase.getAll(), "courseID")) {
+                coursesList.add(row.getRight().getCourseID());
+            }
             // Remove duplicate course names
             List<String> toShow = new ArrayList<>();
             for (String c : coursesList) {
@@ -258,7 +269,10 @@ public class StudentGradeStatisticController implements Initializable {
                     if (questions.isEmpty()) {
                         continue; // Skip this question if it doesn't exist
                     }
-                    total += Integer.parseInt(questions.getFirst().getQuestionScore());
+                    int questionScore = questions.getFirst().getQuestionScoreValue();
+                    if (questionScore != ColumnType.NO_INT) {
+                        total += questionScore;
+                    }
                 }
 
                 // Get the course associated with the quiz
@@ -313,8 +327,10 @@ public class StudentGradeStatisticController implements Initializable {
 
                     // Populate data for the current student
                     String examName = row.getExamName();
-                    Number score = Integer.parseInt(row.getScore());
-                    series.getData().add(new XYChart.Data<>(examName, score));
+                    Number score = row.getScoreValue();
+                    if (row.getScoreValue() != ColumnType.NO_INT) {
+                        series.getData().add(new XYChart.Data<>(examName, score));
+                    }
 
                     // Add the series to the chart
                     tmp.add(new GradeTableRow(
@@ -5,6 +5,7 @@ import comp3111.examsystem.model.Grade;
 import comp3111.examsystem.model.Student;
 import comp3111.examsystem.service.Database;
 import comp3111.examsystem.service.MsgSender;
+import comp3111.examsystem.service.Query;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -342,20 +343,17 @@ public class StudentManagementController {
     {
         // Delete the grades of the student from the database
         allGrades = gradeDatabase.getAll();
-        List<Grade> gradesToDelete = new ArrayList<>();
+        List<String> gradesToDelete = new ArrayList<>();
         for (Grade grade : allGrades)
         {
             if (Long.parseLong(grade.getStudentId()) == student.getId())
             {
-                gradesToDelete.add(grade);
+                gradesToDelete.add(String.valueOf(grade.getID()));
             }
         }
         try
         {
-            for (Grade grade : gradesToDelete)
-            {
-                gradeDatabase.delByKey(String.valueOf(grade.getID()));
-            }
+            gradeDatabase.deleteByKeys(gradesToDelete);
         }
         catch (Exception e)
         {
@@ -666,15 +664,17 @@ public class StudentManagementController {
             String nameFilter = studentNameFilter.getText();
             String departmentFilter = studentDeptFilter.getText().toUpperCase();
 
-            List<Student> allStudents = studentDatabase.getAll();
-
-            for (Student student : allStudents) {
-                if ((usernameFilter.isEmpty() || usernameFilter.equals(student.getUsername())) &&
-                        (nameFilter.isEmpty() || nameFilter.equals(student.getName())) &&
-                        (departmentFilter.isEmpty() || departmentFilter.equals(student.getDepartment()))) {
-                    filteredStudents.add(student);
-                }
+            Query<Student> query = Query.from(Student.class);
+            if (!usernameFilter.isEmpty()) {
+                query.and("username", Query.eq(usernameFilter));
+            }
+            if (!nameFilter.isEmpty()) {
+                query.and("name", Query.eq(nameFilter));
+            }
+            if (!departmentFilter.isEmpty()) {
+                query.and("department", Query.eq(departmentFilter));
             }
+            filteredStudents = studentDatabase.query(query);
 
             studentList = FXCollections.observableArrayList(filteredStudents);
         }
@@ -11,6 +11,7 @@ import comp3111.examsystem.model.Question;
 import comp3111.examsystem.model.Quiz;
 import comp3111.examsystem.service.Database;
 import comp3111.examsystem.service.MsgSender;
+import comp3111.examsystem.service.Query;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -719,16 +720,17 @@ public class TeacherExamManagementController {
                     String courseIDFilter = courseIDFilterChoiceBox.getValue();
                     String publishFilter = publishStatusFilterChoiceBox.getValue();
 
-                    allQuizzes = quizDatabase.getAll();
-                    List<Quiz> filteredQuizzes = new ArrayList<>();
-
-                    for (Quiz quiz : allQuizzes) {
-                        if ((examNameFilter.isEmpty() || quiz.getQuizName().contains(examNameFilter)) &&
-                                (courseIDFilter.isEmpty() || quiz.getCourseID().equals(courseIDFilter)) &&
-                                (publishFilter.isEmpty() || quiz.getPublishStatus().equals(publishFilter))) {
-                            filteredQuizzes.add(quiz);
-                        }
+                    Query<Quiz> query = Query.from(Quiz.class);
+                    if (!examNameFilter.isEmpty()) {
+                        query.and("quizName", Query.contains(examNameFilter));
+                    }
+                    if (!courseIDFilter.isEmpty()) {
+                        query.and("courseID", Query.eq(courseIDFilter));
+                    }
+                    if (!publishFilter.isEmpty()) {
+                        query.and("publishStatus", Query.eq(publishFilter));
                     }
+                    List<Quiz> filteredQuizzes = quizDatabase.query(query);
 
                     quizList = FXCollections.observableArrayList(filteredQuizzes);
                 } catch (Exception e) {
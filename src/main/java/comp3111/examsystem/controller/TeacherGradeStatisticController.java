@@ -1,7 +1,12 @@
 package comp3111.examsystem.controller;
 
 import comp3111.examsystem.model.*;
+import comp3111.examsystem.service.ColumnType;
+import comp3111.examsystem.service.ColumnarTable;
 import comp3111.examsystem.service.Database;
+import comp3111.examsystem.service.GradeStatistics;
+import comp3111.examsystem.service.Join;
+import comp3111.examsystem.service.primitive.LongIntMap;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -54,6 +59,8 @@ public class TeacherGradeStatisticController implements Initializable {
         public String exam;
         public String student;
         public String score;
+        // the score as a number, parsed once for the charts
+        public int scoreValue;
         public String fullScore;
         public String timeSpend;
 
@@ -72,6 +79,7 @@ public class TeacherGradeStatisticController implements Initializable {
             this.exam = exam;
             this.student = student;
             this.score = score;
+            this.scoreValue = ColumnType.toInt(score);
             this.fullScore = fullScore;
             this.timeSpend = timeSpend;
         }
@@ -137,6 +145,8 @@ public class TeacherGradeStatisticController implements Initializable {
     public Database<Student> studentDatabase;
     public Database<Course> courseDatabase;
     public Database<Question> questionDatabase;
+    // full scores kept up to date as quizzes and questions change
+    public GradeStatistics gradeStatistics;
     public List<Grade> gradeList;
     public List<Quiz> quizList;
     public List<Student> studentList;
@@ -156,6 +166,7 @@ public class TeacherGradeStatisticController implements Initializable {
         studentDatabase = new Database<>(Student.class);
         courseDatabase = new Database<>(Course.class);
         questionDatabase = new Database<>(Question.class);
+        gradeStatistics = GradeStatistics.open();
 
         gradeStatisticList = new ArrayList<>();
 
@@ -182,7 +193,6 @@ public class TeacherGradeStatisticController implements Initializable {
         timeSpendColumn.setCellValueFactory(new PropertyValueFactory<>("timeSpend"));
 
         refresh();
-        loadChart(gradeStatisticList);
     }
 
     /**
@@ -227,46 +237,45 @@ public class TeacherGradeStatisticController implements Initializable {
         studentList = studentDatabase.getAll();
         courseList = courseDatabase.getAll();
 
-        Map<String, String> quizTotal = new HashMap<>();
+        // quiz id -> total score of its questions
+        LongIntMap quizTotal = new LongIntMap(-1, quizList.size());
 
         for (Quiz quiz : quizList) {
-            String[] questionIDs = quiz.getQuestionIDs().split("\\|");
-            int totalScore = 0;
-            for (String questionID : questionIDs) {
-                Question question = questionDatabase.queryByKey(questionID);
-                totalScore += Integer.parseInt(question.getQuestionScore());
-            }
-            quizTotal.put(Long.toString(quiz.getId()), Integer.toString(totalScore));
+            quizTotal.put(quiz.getId(), fullScore(quiz));
         }
 
-        // make the grade statistic list
-        for (Grade grade : gradeList)
+        // rows already listed, so a refresh does not list them twice
+        Set<List<String>> listedRows = new HashSet<>();
+        for (GradeStatisticClass listed : gradeStatisticList) {
+            listedRows.add(rowKey(listed));
+        }
+
+        // grades of quizzes or students that no longer exist are left out
+        Map<Grade, Student> gradeStudents = new IdentityHashMap<>();
+        for (Join.Row<Grade, Student> row : Join.hashJoin(gradeList, "studentId", studentList, "id")) {
+            gradeStudents.put(row.getLeft(), row.getRight());
+        }
+        for (Join.Row<Grade, Quiz> row : Join.hashJoin(gradeList, "questionId", quizList, "id"))
         {
-            // find the courseID of the quiz
-            Quiz quizInGrade;
-            String courseID;
-            String quizName;
-            String studentName;
-            try {
-                quizInGrade = quizDatabase.queryByKey(grade.getQuestionId());
-                courseID = quizInGrade.getCourseID();
-                quizName = quizInGrade.getQuizName();
-                studentName = studentDatabase.queryByKey(grade.getStudentId()).getName();
-            } catch (Exception e) {
+            Grade grade = row.getLeft();
+            Quiz quizInGrade = row.getRight();
+            Student student = gradeStudents.get(grade);
+            if (student == null) {
                 continue;
             }
+            int fullScore = quizTotal.get(quizInGrade.getId());
 
             GradeStatisticClass gradeStatistic = new GradeStatisticClass (
-                    studentName,
-                    courseID,
-                    quizName,
+                    student.getName(),
+                    quizInGrade.getCourseID(),
+                    quizInGrade.getQuizName(),
                     grade.getStudentScore(),
-                    quizTotal.get(grade.getQuestionId()),
+                    fullScore < 0 ? null : Integer.toString(fullScore),
                     grade.getTimeSpent()
             );
 
             // if the course is not in the list, add it
-            if (!isDuplicate(gradeStatistic, gradeStatisticList))
+            if (listedRows.add(rowKey(gradeStatistic)))
             {
                 gradeStatisticList.add(gradeStatistic);
                 gradeListObservable.add(gradeStatistic);
@@ -279,6 +288,37 @@ public class TeacherGradeStatisticController implements Initializable {
 
     }
 
+    /**
+     * Finds the full score of a quiz, from the grade statistics when they are available.
+     *
+     * @param quiz The quiz to score.
+     * @return The total score of the questions in the quiz.
+     */
+    private int fullScore(Quiz quiz) {
+        if (gradeStatistics != null) {
+            return gradeStatistics.fullScore(quiz.getId());
+        }
+        int totalScore = 0;
+        for (String questionID : quiz.getQuestionIDs().split("\\|")) {
+            Question question = questionDatabase.queryByKey(questionID);
+            if (question.getQuestionScoreValue() != ColumnType.NO_INT) {
+                totalScore += question.getQuestionScoreValue();
+            }
+        }
+        return totalScore;
+    }
+
+    /**
+     * Builds the key that identifies a row of the grade table.
+     *
+     * @param grade The grade statistic row.
+     * @return Every shown value of the row.
+     */
+    private static List<String> rowKey(GradeStatisticClass grade) {
+        return Arrays.asList(grade.getCourse(), grade.getExam(), grade.getStudent(), grade.getScore(),
+                grade.getFullScore(), grade.getTimeSpend());
+    }
+
     /**
      * Refreshes the view by clearing the filters and reloading all data.
      */
@@ -295,48 +335,49 @@ public class TeacherGradeStatisticController implements Initializable {
         // load the data
         populateGradeStatisticList();
 
-        loadChart(gradeStatisticList);
+        loadChart();
         loadList(gradeStatisticList);
     }
 
+    /**
+     * Loads all charts (bar, pie, line) for every grade listed in the table, so the charts count
+     * the same grades as the list beside them.
+     */
+    public void loadChart() {
+        loadChart(gradeStatisticList);
+    }
+
     /**
      * Loads all charts (bar, pie, line) using the provided grade statistics.
      *
      * @param gradeStatisticList A list of GradeStatisticClass objects to be visualized.
      */
     public void loadChart(List<GradeStatisticClass> gradeStatisticList) {
-
-        loadBarChart(gradeStatisticList);
-        loadPieChart(gradeStatisticList);
-        loadLineChart(gradeStatisticList);
+        // copy the grades into columns once and let each chart group them its own way
+        ColumnarTable<GradeStatisticClass> grades = columns(gradeStatisticList);
+        loadBarChart(grades);
+        loadPieChart(grades);
+        loadLineChart(grades);
 
     }
 
     /**
      * Loads the bar chart to display the average grades for each course.
      *
-     * @param gradeStatisticList A list of GradeStatisticClass objects for the bar chart.
+     * @param grades The grade statistics copied into columns by loadChart.
      */
-    public void loadBarChart(List<GradeStatisticClass> gradeStatisticList)
+    public void loadBarChart(ColumnarTable<GradeStatisticClass> grades)
     {
         XYChart.Series<String, Number> seriesBar = new XYChart.Series<>();
         seriesBar.getData().clear();
         barChart.getData().clear();
         // bar chart shows the grade average of each course
-        // in the list, the first entry represents the total score, and the second represents the number of grades
-        HashMap <String, List<Integer>> courseGradeSum = new HashMap<>();
-        for (GradeStatisticClass grade : gradeStatisticList) {
-            if (courseGradeSum.containsKey(grade.course)) {
-                List<Integer> sumAndCount = courseGradeSum.get(grade.course);
-                sumAndCount.set(0, sumAndCount.get(0) + Integer.parseInt(grade.score));
-                sumAndCount.set(1, sumAndCount.get(1) + 1);
-            } else {
-                List<Integer> sumAndCount = new ArrayList<>(Arrays.asList(Integer.parseInt(grade.score), 1));
-                courseGradeSum.put(grade.course, sumAndCount);
+        ColumnarTable.Groups courseGrades = grades.groupBy("scoreValue", "course");
+        for (int i = 0; i < courseGrades.size(); i++) {
+            if (courseGrades.count(i) == 0) {
+                continue; // none of its scores is a number
             }
-        }
-        for (Map.Entry<String, List<Integer>> entry : courseGradeSum.entrySet()) {
-            seriesBar.getData().add(new XYChart.Data<>(entry.getKey(), entry.getValue().get(0) / entry.getValue().get(1)));
+            seriesBar.getData().add(new XYChart.Data<>(courseGrades.key(i), courseGrades.average(i)));
         }
 
         barChart.getData().add(seriesBar);
@@ -345,26 +386,19 @@ public class TeacherGradeStatisticController implements Initializable {
     /**
      * Loads the pie chart to display the distribution of grades among students.
      *
-     * @param gradeStatisticList A list of GradeStatisticClass objects for the pie chart.
+     * @param grades The grade statistics copied into columns by loadChart.
      */
-    public void loadPieChart(List<GradeStatisticClass> gradeStatisticList)
+    public void loadPieChart(ColumnarTable<GradeStatisticClass> grades)
     {
         pieChart.getData().clear();
 
         // Load the pie chart according to the scores of individual students
-        HashMap <String, List<Integer>> studentGradeSum = new HashMap<>();
-        for (GradeStatisticClass grade : gradeStatisticList) {
-            if (studentGradeSum.containsKey(grade.student)) {
-                List<Integer> sumAndCount = studentGradeSum.get(grade.student);
-                sumAndCount.set(0, sumAndCount.get(0) + Integer.parseInt(grade.score));
-                sumAndCount.set(1, sumAndCount.get(1) + 1);
-            } else {
-                List<Integer> sumAndCount = new ArrayList<>(Arrays.asList(Integer.parseInt(grade.score), 1));
-                studentGradeSum.put(grade.student, sumAndCount);
+        ColumnarTable.Groups studentGrades = grades.groupBy("scoreValue", "student");
+        for (int i = 0; i < studentGrades.size(); i++) {
+            if (studentGrades.count(i) == 0) {
+                continue; // none of its scores is a number
             }
-        }
-        for (Map.Entry<String, List<Integer>> entry : studentGradeSum.entrySet()) {
-            pieChart.getData().add(new PieChart.Data(entry.getKey(), (double) entry.getValue().get(0) / entry.getValue().get(1)));
+            pieChart.getData().add(new PieChart.Data(studentGrades.key(i), studentGrades.average(i)));
         }
 
     }
@@ -372,36 +406,38 @@ public class TeacherGradeStatisticController implements Initializable {
     /**
      * Loads the line chart to display the average grades for each exam.
      *
-     * @param gradeStatisticList A list of GradeStatisticClass objects for the line chart.
+     * @param grades The grade statistics copied into columns by loadChart.
      */
-    public void loadLineChart(List<GradeStatisticClass> gradeStatisticList)
+    public void loadLineChart(ColumnarTable<GradeStatisticClass> grades)
     {
         XYChart.Series<String, Number> seriesLine = new XYChart.Series<>();
         seriesLine.getData().clear();
         lineChart.getData().clear();
 
-        HashMap <String, List<Integer>> quizGradeSum = new HashMap<>();
-        for (GradeStatisticClass grade : gradeStatisticList) {
-            String quizName = grade.getCourse() + "-" + grade.getExam();
-            if (quizGradeSum.containsKey(quizName)) {
-                List<Integer> sumAndCount = quizGradeSum.get(quizName);
-                sumAndCount.set(0, sumAndCount.get(0) + Integer.parseInt(grade.score));
-                sumAndCount.set(1, sumAndCount.get(1) + 1);
-            } else {
-                List<Integer> sumAndCount = new ArrayList<>(Arrays.asList(Integer.parseInt(grade.score), 1));
-                quizGradeSum.put(quizName, sumAndCount);
+        ColumnarTable.Groups quizGrades = grades.groupBy("scoreValue", "course", "exam");
+        for (int i = 0; i < quizGrades.size(); i++) {
+            if (quizGrades.count(i) == 0) {
+                continue; // none of its scores is a number
             }
+            String quizName = quizGrades.key(i, 0) + "-" + quizGrades.key(i, 1);
+            seriesLine.getData().add(new XYChart.Data<>(quizName, quizGrades.average(i)));
         }
-        for (Map.Entry<String, List<Integer>> entry : quizGradeSum.entrySet()) {
-            seriesLine.getData().add(new XYChart.Data<>(entry.getKey(), entry.getValue().get(0) / entry.getValue().get(1)));
-        }
-
 
         lineChart.getData().add(seriesLine);
         lineChart.setAnimated(false); // Ensure animation is disabled to avoid rendering issues
 
     }
 
+    /**
+     * Copies the course, exam, student and score of the grade statistics into columns for the charts.
+     *
+     * @param gradeStatisticList A list of GradeStatisticClass objects to aggregate.
+     * @return The columns, with the scores already parsed.
+     */
+    private ColumnarTable<GradeStatisticClass> columns(List<GradeStatisticClass> gradeStatisticList) {
+        return ColumnarTable.of(GradeStatisticClass.class, gradeStatisticList, "course", "exam", "student", "scoreValue");
+    }
+
     /**
      * Resets all filters and reloads the original data.
      */
@@ -415,7 +451,7 @@ public class TeacherGradeStatisticController implements Initializable {
         // populate the combox boxes
         populateChoiceBoxes();
 
-        loadChart(gradeStatisticList);
+        loadChart();
         loadList(gradeStatisticList);
     }
 
@@ -9,6 +9,7 @@ import comp3111.examsystem.model.Question;
 import comp3111.examsystem.model.Teacher;
 import comp3111.examsystem.service.Database;
 import comp3111.examsystem.service.MsgSender;
+import comp3111.examsystem.service.Query;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -25,6 +26,8 @@ import javafx.scene.layout.VBox;
  * Controller for the Teacher's Question Bank Management page
  */
 public class TeacherQuestionBankManagementController {
+    // most questions a text filter lists, best matches first
+    private static final int SEARCH_LIMIT = 500;
     public Database<Question> questionDatabase;
     public List<Question> allQuestions;
     public ObservableList<Question> questionList;
@@ -470,15 +473,22 @@ public class TeacherQuestionBankManagementController {
                 String scoreFilter = scoreFilterTextField.getText();
                 String typeFilter = typeFilterChoiceBox.getValue();
 
-                List<Question> allQuestions = questionDatabase.getAll();
-                List<Question> filteredQuestions = new ArrayList<>();
-
-                for (Question question : allQuestions) {
-                    if ((questionFilter.isEmpty() || question.getQuestionDescription().contains(questionFilter)) &&
-                            (scoreFilter.isEmpty() || question.getQuestionScore().equals(scoreFilter)) &&
-                            (typeFilter.isEmpty() || question.getQuestionType().equals(typeFilter))) {
-                        filteredQuestions.add(question);
-                    }
+                Query<Question> query = Query.from(Question.class);
+                if (!scoreFilter.isEmpty()) {
+                    query.and("questionScore", Query.eq(scoreFilter));
+                }
+                if (!typeFilter.isEmpty()) {
+                    query.and("questionType", Query.eq(typeFilter));
+                }
+                // the text filter ranks questions by how well their description and options match it,
+                // among those passing the other filters
+                // one more than is shown tells whether some matches were left out
+                List<Question> filteredQuestions = questionFilter.isEmpty() ? questionDatabase.query(query)
+                        : questionDatabase.search(questionFilter, SEARCH_LIMIT + 1, query.toPredicate());
+                if (filteredQuestions.size() > SEARCH_LIMIT) {
+                    filteredQuestions = filteredQuestions.subList(0, SEARCH_LIMIT);
+                    MsgSender.showMsg("Showing the best " + SEARCH_LIMIT
+                            + " matching questions only. Refine the filter to see the others.");
                 }
 
                 questionList = FXCollections.observableArrayList(filteredQuestions);
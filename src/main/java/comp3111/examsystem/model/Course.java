@@ -1,8 +1,11 @@
 package comp3111.examsystem.model;
 
+import comp3111.examsystem.service.Indexed;
+
 public class Course {
     public long id;
     public String courseName;
+    @Indexed
     public String courseID;
     public String department;
 
@@ -1,18 +1,33 @@
 package comp3111.examsystem.model;
 
+import comp3111.examsystem.service.Column;
+import comp3111.examsystem.service.ColumnType;
+import comp3111.examsystem.service.Indexed;
+import comp3111.examsystem.service.RangeIndexed;
+
 public class Grade {
+    @RangeIndexed
     public long id;
+    @Indexed
     public String studentId;
+    @Indexed
     public String questionId;
-    public String studentScore;
+    @RangeIndexed
+    @Column(ColumnType.INT)
+    private String studentScore;
+    transient int studentScoreValue;
     // testing
-    public String timeSpent;
+    @Column(ColumnType.INT)
+    private String timeSpent;
+    transient int timeSpentValue;
 
     public Grade(){
         this.studentId = "studentId";
         this.questionId = "questionId";
         this.studentScore = "studentScore";
+        this.studentScoreValue = ColumnType.toInt(this.studentScore);
         this.timeSpent = "timeSpent";
+        this.timeSpentValue = ColumnType.toInt(this.timeSpent);
         this.id = 0;
     }
 
@@ -20,15 +35,22 @@ public class Grade {
         return timeSpent;
     }
 
+    public int getTimeSpentValue() {
+        return timeSpentValue;
+    }
+
     public void setTimeSpent(String timeSpent) {
         this.timeSpent = timeSpent;
+        this.timeSpentValue = ColumnType.toInt(this.timeSpent);
     }
 
     public Grade(String studentId, String questionId, String studentScore, String timeSpent){
         this.studentId = studentId;
         this.questionId = questionId;
         this.studentScore = studentScore;
+        this.studentScoreValue = ColumnType.toInt(this.studentScore);
         this.timeSpent = timeSpent;
+        this.timeSpentValue = ColumnType.toInt(this.timeSpent);
         this.id = 0;
     }
 
@@ -44,8 +66,13 @@ public class Grade {
         return studentScore;
     }
 
+    public int getStudentScoreValue() {
+        return studentScoreValue;
+    }
+
     public void setStudentScore(String studentScore) {
         this.studentScore = studentScore;
+        this.studentScoreValue = ColumnType.toInt(this.studentScore);
     }
 
     public String getStudentId() {
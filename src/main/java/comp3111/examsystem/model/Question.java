@@ -1,17 +1,37 @@
 package comp3111.examsystem.model;
 
+import comp3111.examsystem.service.Column;
+import comp3111.examsystem.service.ColumnType;
+import comp3111.examsystem.service.Indexed;
+import comp3111.examsystem.service.Searchable;
+import comp3111.examsystem.service.TrigramIndexed;
+
 import java.util.Arrays;
 
 public class Question {
+    // the labels of questionType, in the order of getQuestionTypeValue()
+    public static final String SINGLE = "Single";
+    public static final String MULTIPLE = "Multiple";
 
+    @Indexed
+    @TrigramIndexed
+    @Searchable
     public String questionDescription;
+    @Searchable
     public String optionA;
+    @Searchable
     public String optionB;
+    @Searchable
     public String optionC;
+    @Searchable
     public String optionD;
     public String answer;
-    public String questionScore;
-    public String questionType;
+    @Column(ColumnType.INT)
+    private String questionScore;
+    transient int questionScoreValue;
+    @Column(value = ColumnType.ENUM, labels = {SINGLE, MULTIPLE})
+    private String questionType;
+    transient int questionTypeValue;
     public long id;
 
     // Default constructor
@@ -23,7 +43,9 @@ public class Question {
         this.optionD = "optionD";
         this.answer = "A";
         this.questionScore = "10";
+        this.questionScoreValue = ColumnType.toInt(this.questionScore);
         this.questionType = "Single";
+        this.questionTypeValue = ColumnType.toOrdinal(this.questionType, SINGLE, MULTIPLE);
         this.id = 0;
     }
 
@@ -35,7 +57,9 @@ public class Question {
         this.optionD = optionD;
         this.answer = answer;
         this.questionScore = questionScore;
+        this.questionScoreValue = ColumnType.toInt(this.questionScore);
         this.questionType = questionType;
+        this.questionTypeValue = ColumnType.toOrdinal(this.questionType, SINGLE, MULTIPLE);
         this.id = id;
     }
 
@@ -67,10 +91,18 @@ public class Question {
         return questionScore;
     }
 
+    public int getQuestionScoreValue() {
+        return questionScoreValue;
+    }
+
     public String getQuestionType() {
         return questionType;
     }
 
+    public int getQuestionTypeValue() {
+        return questionTypeValue;
+    }
+
     public long getId() {
         return id;
     }
@@ -101,10 +133,12 @@ public class Question {
 
     public void setQuestionScore(String questionScore) {
         this.questionScore = questionScore;
+        this.questionScoreValue = ColumnType.toInt(this.questionScore);
     }
 
     public void setQuestionType(String questionType) {
         this.questionType = questionType;
+        this.questionTypeValue = ColumnType.toOrdinal(this.questionType, SINGLE, MULTIPLE);
     }
 }
 
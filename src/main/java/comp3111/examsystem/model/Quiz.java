@@ -1,9 +1,18 @@
 package comp3111.examsystem.model;
 
+import comp3111.examsystem.service.Column;
+import comp3111.examsystem.service.ColumnType;
+import comp3111.examsystem.service.Indexed;
+import comp3111.examsystem.service.TrigramIndexed;
+
 public class Quiz {
     public long id;
+    @TrigramIndexed
     public String quizName;
-    public String quizTime;
+    @Column(ColumnType.INT)
+    private String quizTime;
+    transient int quizTimeValue;
+    @Indexed
     public String courseID;
     public String publishStatus;
     public String questionIDs;     // storing Question ids by concatenating them with "|"
@@ -13,6 +22,7 @@ public class Quiz {
         this.id = 0;
         this.quizName = "quizName";
         this.quizTime = "60";
+        this.quizTimeValue = ColumnType.toInt(this.quizTime);
         this.courseID = "courseID";
         this.publishStatus = "no";
         this.questionIDs = "";
@@ -22,6 +32,7 @@ public class Quiz {
         this.id = id;
         this.quizName = quizName;
         this.quizTime = quizTime;
+        this.quizTimeValue = ColumnType.toInt(this.quizTime);
         this.courseID = courseID;
         this.publishStatus = publishStatus;
         this.questionIDs = questionIDs;
@@ -39,6 +50,10 @@ public class Quiz {
         return quizTime;
     }
 
+    public int getQuizTimeValue() {
+        return quizTimeValue;
+    }
+
     public String getCourseID() {
         return courseID;
     }
@@ -65,6 +80,7 @@ public class Quiz {
 
     public void setQuizTime(String quizTime) {
         this.quizTime = quizTime;
+        this.quizTimeValue = ColumnType.toInt(this.quizTime);
     }
 
     public void setCourseID(String courseID) {
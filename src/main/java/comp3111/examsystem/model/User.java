@@ -1,10 +1,19 @@
 package comp3111.examsystem.model;
 
+import comp3111.examsystem.service.Column;
+import comp3111.examsystem.service.ColumnType;
+import comp3111.examsystem.service.Indexed;
+import comp3111.examsystem.service.RangeIndexed;
+
 public class User {
+    @Indexed
     public String username;
     public String name;
     public String gender;
-    public String age;
+    @RangeIndexed
+    @Column(ColumnType.INT)
+    private String age;
+    transient int ageValue;
     public String department;
     public String password;
 
@@ -13,6 +22,7 @@ public class User {
         this.name = name;
         this.gender = gender;
         this.age = age;
+        this.ageValue = ColumnType.toInt(this.age);
         this.department = department;
         this.password = password;
     }
@@ -33,6 +43,10 @@ public class User {
         return age;
     }
 
+    public int getAgeValue() {
+        return ageValue;
+    }
+
     public String getDepartment() {
         return department;
     }
@@ -55,6 +69,7 @@ public class User {
 
     public void setAge(String age) {
         this.age = age;
+        this.ageValue = ColumnType.toInt(this.age);
     }
 
     public void setPassword(String password) {
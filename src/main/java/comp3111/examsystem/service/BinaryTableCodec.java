@@ -0,0 +1,548 @@
+package comp3111.examsystem.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the binary table format.
+ * <pre>
+ * file    = magic "EXDB", version byte, varint field count, field* , frame*
+ * field   = varint name length, UTF-8 name, type byte (0 text, 1 long)
+ * frame   = varint payload length, payload, CRC-32 of the payload (4 bytes, big-endian)
+ * payload = 0, (varint field index, value)*   a row, fields as in the header
+ *         | 1, zigzag varint id               a tombstone
+ * value   = varint length, UTF-8 bytes        for a text field
+ *         | zigzag varint                     for a long field
+ * </pre>
+ * A row only carries the fields that have a value, like the text format, so converting
+ * between the two loses nothing.
+ */
+final class BinaryTableCodec {
+    static final byte[] MAGIC = {'E', 'X', 'D', 'B'};
+    static final int VERSION = 1;
+    static final byte TEXT = 0;
+    static final byte LONG = 1;
+    static final byte ROW = 0;
+    static final byte TOMBSTONE = 1;
+
+    private BinaryTableCodec() {
+    }
+
+    // Header describing the fields of an entity class in record order
+    static byte[] header(EntityMetadata<?> metadata) {
+        List<FieldAccessor> fields = metadata.fields();
+        String[] names = new String[fields.size()];
+        byte[] types = new byte[fields.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = fields.get(i).getName();
+            types[i] = fields.get(i).isLong() ? LONG : TEXT;
+        }
+        return new Writer(names, types).toByteArray();
+    }
+
+    // One framed row, without a header
+    static <T> byte[] row(T t, EntityMetadata<T> metadata) {
+        Writer writer = new Writer();
+        writeRow(writer, t, metadata);
+        return writer.toByteArray();
+    }
+
+    // One framed tombstone, without a header
+    static byte[] tombstone(long id) {
+        Writer writer = new Writer();
+        writer.tombstone(id);
+        return writer.toByteArray();
+    }
+
+    // A complete table file holding the given rows
+    static <T> byte[] table(List<T> rows, EntityMetadata<T> metadata) {
+        Writer writer = new Writer();
+        writer.write(header(metadata));
+        for (T row : rows) {
+            writeRow(writer, row, metadata);
+        }
+        return writer.toByteArray();
+    }
+
+    private static <T> void writeRow(Writer writer, T t, EntityMetadata<T> metadata) {
+        List<FieldAccessor> fields = metadata.fields();
+        writer.beginRow();
+        for (int i = 0; i < fields.size(); i++) {
+            FieldAccessor field = fields.get(i);
+            Object value = field.get(t);
+            if (value == null) {
+                continue;
+            }
+            if (field.isLong()) {
+                writer.field(i, (Long) value);
+            } else {
+                String text = value.toString();
+                if (!text.isEmpty()) {
+                    writer.field(i, text);
+                }
+            }
+        }
+        writer.endRow();
+    }
+
+    // Decode a complete table file, passing each record to the visitor; returns the number of records
+    static <T> int read(ByteBuffer data, EntityMetadata<T> metadata, RecordVisitor<T> visitor) {
+        if (!data.hasRemaining()) {
+            return 0;
+        }
+        Reader reader = new Reader(data);
+        FieldAccessor[] accessors = accessors(reader, metadata);
+        int records = 0;
+        while (!visitor.isDone() && reader.next()) {
+            records++;
+            if (reader.isTombstone()) {
+                visitor.deleted(reader.deletedId());
+            } else {
+                visitor.row(decodeRow(reader, accessors, metadata));
+            }
+        }
+        return records;
+    }
+
+    static <T> int read(byte[] data, EntityMetadata<T> metadata, RecordVisitor<T> visitor) {
+        return read(ByteBuffer.wrap(data), metadata, visitor);
+    }
+
+    // The rows of a binary table file, each decoded only when the iterator reaches it. Tombstones are skipped.
+    static <T> Iterator<T> rows(ByteBuffer data, EntityMetadata<T> metadata) {
+        if (!data.hasRemaining()) {
+            return Collections.emptyIterator();
+        }
+        Reader reader = new Reader(data);
+        FieldAccessor[] accessors = accessors(reader, metadata);
+        return new Iterator<T>() {
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && reader.next()) {
+                    if (!reader.isTombstone()) {
+                        next = decodeRow(reader, accessors, metadata);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T row = next;
+                next = null;
+                return row;
+            }
+        };
+    }
+
+    // Decode only the rows whose field holds one of the given values; a row without the field is
+    // decoded too, since it takes the entity's default. Tombstones are skipped.
+    static <T> void select(ByteBuffer data, EntityMetadata<T> metadata, String fieldName, Collection<String> values,
+                           RecordVisitor<T> visitor) {
+        if (!data.hasRemaining()) {
+            return;
+        }
+        Reader reader = new Reader(data);
+        FieldAccessor[] accessors = accessors(reader, metadata);
+        metadata.field(fieldName);
+        int target = -1;
+        for (int i = 0; i < reader.fieldCount(); i++) {
+            if (reader.fieldName(i).equals(fieldName)) {
+                target = i;
+            }
+        }
+        boolean numeric = target >= 0 && reader.fieldType(target) == LONG;
+        Set<Long> numbers = new HashSet<>();
+        List<byte[]> texts = new ArrayList<>();
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            if (numeric) {
+                try {
+                    long number = Long.parseLong(value);
+                    // only the canonical spelling of a number is equal to its text form
+                    if (Long.toString(number).equals(value)) {
+                        numbers.add(number);
+                    }
+                } catch (NumberFormatException e) {
+                    // cannot match a number
+                }
+            } else {
+                texts.add(value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        while (!visitor.isDone() && reader.next()) {
+            if (reader.isTombstone()) {
+                continue;
+            }
+            boolean candidate = true;
+            while (reader.nextField()) {
+                if (reader.fieldIndex() != target) {
+                    reader.skipValue();
+                    continue;
+                }
+                candidate = numeric ? numbers.contains(reader.longValue()) : reader.textValueMatches(texts);
+                break;
+            }
+            if (candidate) {
+                reader.rewind();
+                visitor.row(decodeRow(reader, accessors, metadata));
+            }
+        }
+    }
+
+    // stored field index -> field of the entity, matched by name so reordered fields still load
+    private static FieldAccessor[] accessors(Reader reader, EntityMetadata<?> metadata) {
+        FieldAccessor[] accessors = new FieldAccessor[reader.fieldCount()];
+        for (int i = 0; i < accessors.length; i++) {
+            accessors[i] = metadata.field(reader.fieldName(i));
+        }
+        return accessors;
+    }
+
+    private static <T> T decodeRow(Reader reader, FieldAccessor[] accessors, EntityMetadata<T> metadata) {
+        T t = metadata.newInstance();
+        while (reader.nextField()) {
+            FieldAccessor field = accessors[reader.fieldIndex()];
+            if (reader.isLongField()) {
+                long value = reader.longValue();
+                field.set(t, field.isLong() ? (Object) value : String.valueOf(value));
+            } else {
+                String value = reader.textValue();
+                field.set(t, field.isLong() ? (Object) Long.parseLong(value) : value);
+            }
+        }
+        return t;
+    }
+
+    // Length of a log file without its torn tail: the header and every whole frame after it
+    static long completeLength(ByteBuffer data) {
+        if (!data.hasRemaining()) {
+            return 0;
+        }
+        Reader reader = new Reader(data);
+        while (reader.next()) {
+            // skip to the end of the last frame that was written completely
+        }
+        return reader.nextFrame - data.position();
+    }
+
+    // Number of whole frames in a run of frames with no header, such as a tail appended to a log
+    static int countFrames(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int frames = 0;
+        int[] pos = {0};
+        while (pos[0] < data.length) {
+            int length = (int) readVarint(buffer, pos);
+            pos[0] += length + 4;
+            if (pos[0] > data.length) {
+                break;
+            }
+            frames++;
+        }
+        return frames;
+    }
+
+    static long readVarint(ByteBuffer data, int[] pos) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= data.limit()) {
+                throw new IllegalStateException("Truncated varint at offset " + pos[0]);
+            }
+            byte b = data.get(pos[0]++);
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint before offset " + pos[0]);
+    }
+
+    /**
+     * Builds a table file or a run of frames in memory.
+     */
+    static final class Writer {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        private final CRC32 crc = new CRC32();
+
+        Writer() {
+        }
+
+        // Start a file with a header for the given fields
+        Writer(String[] names, byte[] types) {
+            out.writeBytes(MAGIC);
+            out.write(VERSION);
+            writeVarint(out, names.length);
+            for (int i = 0; i < names.length; i++) {
+                byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, name.length);
+                out.writeBytes(name);
+                out.write(types[i]);
+            }
+        }
+
+        void write(byte[] bytes) {
+            out.writeBytes(bytes);
+        }
+
+        void beginRow() {
+            payload.reset();
+            payload.write(ROW);
+        }
+
+        void field(int index, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(payload, index);
+            writeVarint(payload, bytes.length);
+            payload.writeBytes(bytes);
+        }
+
+        void field(int index, long value) {
+            writeVarint(payload, index);
+            writeVarint(payload, zigzag(value));
+        }
+
+        void endRow() {
+            frame();
+        }
+
+        void tombstone(long id) {
+            payload.reset();
+            payload.write(TOMBSTONE);
+            writeVarint(payload, zigzag(id));
+            frame();
+        }
+
+        private void frame() {
+            byte[] bytes = payload.toByteArray();
+            crc.reset();
+            crc.update(bytes);
+            int checksum = (int) crc.getValue();
+            writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+            out.write(checksum >>> 24);
+            out.write(checksum >>> 16);
+            out.write(checksum >>> 8);
+            out.write(checksum);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        private static void writeVarint(ByteArrayOutputStream out, long value) {
+            while ((value & ~0x7fL) != 0) {
+                out.write((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+
+    /**
+     * Walks the header and frames of a table file, checking each frame's CRC.
+     * Reads straight from the buffer, which may be a mapped file, so only the values asked for are copied.
+     * A frame cut short at the end of the file, as left by an interrupted append, is ignored.
+     */
+    static final class Reader {
+        private final ByteBuffer data;
+        private final ByteBuffer view;
+        private final int limit;
+        private final int[] pos = {0};
+        private final String[] names;
+        private final byte[] types;
+        private final CRC32 crc = new CRC32();
+        private byte[] scratch = new byte[64];
+        private int nextFrame;
+        private int payloadStart;
+        private int payloadEnd;
+        private boolean tombstone;
+        private int fieldIndex;
+
+        Reader(ByteBuffer data) {
+            this.data = data;
+            this.view = data.duplicate();
+            this.limit = data.limit();
+            pos[0] = data.position();
+            if (limit - pos[0] < MAGIC.length + 1) {
+                throw new IllegalStateException("Not a binary table file");
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (data.get(pos[0]++) != MAGIC[i]) {
+                    throw new IllegalStateException("Not a binary table file");
+                }
+            }
+            int version = data.get(pos[0]++);
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported binary table version " + version);
+            }
+            int count = (int) readVarint(data, pos);
+            names = new String[count];
+            types = new byte[count];
+            for (int i = 0; i < count; i++) {
+                int length = (int) readVarint(data, pos);
+                names[i] = utf8(pos[0], length);
+                pos[0] += length;
+                types[i] = data.get(pos[0]++);
+            }
+            nextFrame = pos[0];
+        }
+
+        Reader(byte[] data) {
+            this(ByteBuffer.wrap(data));
+        }
+
+        int fieldCount() {
+            return names.length;
+        }
+
+        String fieldName(int index) {
+            return names[index];
+        }
+
+        byte fieldType(int index) {
+            return types[index];
+        }
+
+        // Move to the next record; false at the end of the file
+        boolean next() {
+            pos[0] = nextFrame;
+            if (pos[0] >= limit) {
+                return false;
+            }
+            int start = pos[0];
+            int length;
+            try {
+                length = (int) readVarint(data, pos);
+            } catch (IllegalStateException e) {
+                return false;
+            }
+            if (pos[0] + length + 4 > limit) {
+                return false;
+            }
+            crc.reset();
+            view.limit(pos[0] + length).position(pos[0]);
+            crc.update(view);
+            int at = pos[0] + length;
+            if (data.getInt(at) != (int) crc.getValue()) {
+                throw new IllegalStateException("Checksum mismatch in record at offset " + start);
+            }
+            payloadEnd = at;
+            nextFrame = at + 4;
+            tombstone = data.get(pos[0]++) == TOMBSTONE;
+            payloadStart = pos[0];
+            return true;
+        }
+
+        // Go back to the first field of the current row
+        void rewind() {
+            pos[0] = payloadStart;
+        }
+
+        boolean isTombstone() {
+            return tombstone;
+        }
+
+        long deletedId() {
+            return unzigzag(readVarint(data, pos));
+        }
+
+        // Move to the next field of the current row; false when the row has no more
+        boolean nextField() {
+            if (pos[0] >= payloadEnd) {
+                return false;
+            }
+            fieldIndex = (int) readVarint(data, pos);
+            if (fieldIndex >= names.length) {
+                throw new IllegalStateException("Unknown field index " + fieldIndex + " at offset " + pos[0]);
+            }
+            return true;
+        }
+
+        int fieldIndex() {
+            return fieldIndex;
+        }
+
+        boolean isLongField() {
+            return types[fieldIndex] == LONG;
+        }
+
+        long longValue() {
+            return unzigzag(readVarint(data, pos));
+        }
+
+        String textValue() {
+            int length = (int) readVarint(data, pos);
+            String value = utf8(pos[0], length);
+            pos[0] += length;
+            return value;
+        }
+
+        // Whether the current text value is byte-for-byte one of the candidates, without decoding it
+        boolean textValueMatches(List<byte[]> candidates) {
+            int length = (int) readVarint(data, pos);
+            int start = pos[0];
+            pos[0] += length;
+            for (byte[] candidate : candidates) {
+                if (candidate.length == length && regionEquals(start, candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean regionEquals(int start, byte[] bytes) {
+            for (int i = 0; i < bytes.length; i++) {
+                if (data.get(start + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void skipValue() {
+            if (isLongField()) {
+                readVarint(data, pos);
+            } else {
+                int length = (int) readVarint(data, pos);
+                pos[0] += length;
+            }
+        }
+
+        private String utf8(int start, int length) {
+            if (data.hasArray()) {
+                return new String(data.array(), data.arrayOffset() + start, length, StandardCharsets.UTF_8);
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            data.get(start, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package comp3111.examsystem.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the type of a text field of an entity. The entity keeps the parsed value in a
+ * {@code transient} field of the same name followed by {@code Value}: an {@code int} for
+ * {@link ColumnType#INT} and {@link ColumnType#ENUM}, a {@code long} for {@link ColumnType#LONG}.
+ * Rows read from a table get it set by the storage engine; the entity's own setter keeps it up
+ * to date afterwards, so the text field is private and written only through that setter. Text
+ * that holds no value parses to {@link ColumnType#NO_INT}, {@link ColumnType#NO_LONG} or -1.
+ * <pre>
+ * &#64;Column(ColumnType.INT)
+ * private String studentScore;
+ * transient int studentScoreValue;
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Column {
+    ColumnType value();
+
+    // The labels of an ENUM column, in order
+    String[] labels() default {};
+}
@@ -0,0 +1,55 @@
+package comp3111.examsystem.service;
+
+/**
+ * The type a table column holds. Every column is stored as text in the table file; a typed
+ * column is also parsed once, when the row is loaded or the field is set, into a primitive the
+ * entity keeps beside the text (see {@link Column}).
+ */
+public enum ColumnType {
+    STRING,
+    INT,
+    LONG,
+    // one of a fixed list of labels, kept as the label's position in the list
+    ENUM;
+
+    // What toInt and toLong give for text that does not hold a number in range, so bad data is
+    // never taken for a real 0; aggregates leave such rows out (see isMissing)
+    public static final int NO_INT = Integer.MIN_VALUE;
+    public static final long NO_LONG = Long.MIN_VALUE;
+
+    // The number the text holds, or NO_INT when it does not hold an int
+    public static int toInt(String text) {
+        Long value = parse(text);
+        return value != null && value == value.intValue() && value != NO_INT ? value.intValue() : NO_INT;
+    }
+
+    // The number the text holds, or NO_LONG when it does not hold a long
+    public static long toLong(String text) {
+        Long value = parse(text);
+        return value == null ? NO_LONG : value;
+    }
+
+    private static Long parse(String text) {
+        return text == null ? null : Query.parseNumber(text.trim());
+    }
+
+    // Whether a parsed value of a column of this type stands for text that held none
+    public boolean isMissing(long value) {
+        return switch (this) {
+            case INT -> value == NO_INT;
+            case LONG -> value == NO_LONG;
+            case ENUM -> value < 0;
+            case STRING -> false;
+        };
+    }
+
+    // The position of the text among the labels, or -1 when it is not one of them
+    public static int toOrdinal(String text, String... labels) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equals(text)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
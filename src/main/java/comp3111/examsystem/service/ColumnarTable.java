@@ -0,0 +1,323 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.service.primitive.Accumulators;
+import comp3111.examsystem.service.primitive.IntList;
+import comp3111.examsystem.service.primitive.LongIntMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only copy of some fields of a table laid out column by column, for aggregations over
+ * many rows. {@link ColumnType#INT} and {@link ColumnType#LONG} columns are held as
+ * {@code int[]} and {@code long[]} of their parsed values; any other column is dictionary
+ * encoded, as an {@code int[]} of codes into the list of its distinct values. Group-by
+ * aggregates then run as loops over primitive arrays without touching the row objects.
+ * <pre>
+ * ColumnarTable&lt;Grade&gt; grades = gradeDatabase.columns("questionId", "studentScore");
+ * ColumnarTable.Groups perQuiz = grades.groupBy("studentScore", "questionId");
+ * </pre>
+ */
+public class ColumnarTable<T> {
+    private final EntityMetadata<T> metadata;
+    private final Map<String, Column> columns;
+    private final int size;
+    // row numbers of the rows this view keeps, in order, or null for every row
+    private final int[] selection;
+
+    private ColumnarTable(EntityMetadata<T> metadata, Map<String, Column> columns, int size, int[] selection) {
+        this.metadata = metadata;
+        this.columns = columns;
+        this.size = size;
+        this.selection = selection;
+    }
+
+    // Copy the named fields of the rows into columns
+    public static <T> ColumnarTable<T> of(Class<T> type, Iterable<T> rows, String... fields) {
+        return of(type, rows.iterator(), fields);
+    }
+
+    static <T> ColumnarTable<T> of(Class<T> type, Iterator<T> rows, String... fields) {
+        EntityMetadata<T> metadata = EntityMetadata.of(type);
+        FieldAccessor[] accessors = new FieldAccessor[fields.length];
+        Column[] built = new Column[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            accessors[i] = metadata.field(fields[i]);
+            built[i] = new Column(accessors[i].getColumnType());
+        }
+        int size = 0;
+        while (rows.hasNext()) {
+            T row = rows.next();
+            for (int i = 0; i < accessors.length; i++) {
+                built[i].append(size, accessors[i], row);
+            }
+            size++;
+        }
+        Map<String, Column> columns = new LinkedHashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            built[i].trim(size);
+            columns.put(fields[i], built[i]);
+        }
+        return new ColumnarTable<>(metadata, columns, size, null);
+    }
+
+    // Number of rows in this view
+    public int size() {
+        return selection == null ? size : selection.length;
+    }
+
+    // The rows whose value in the column is the given one, as another view of the same columns
+    public ColumnarTable<T> where(String field, String value) {
+        Column column = column(field);
+        IntList kept = new IntList();
+        if (column.codes != null) {
+            Integer code = column.lookup.get(value);
+            if (code == null) {
+                return new ColumnarTable<>(metadata, columns, size, new int[0]);
+            }
+            int wanted = code;
+            int[] codes = column.codes;
+            for (int r = 0, n = size(); r < n; r++) {
+                int row = selection == null ? r : selection[r];
+                if (codes[row] == wanted) {
+                    kept.add(row);
+                }
+            }
+        } else {
+            long wanted = ColumnType.toLong(value);
+            if (wanted == ColumnType.NO_LONG) {
+                return new ColumnarTable<>(metadata, columns, size, new int[0]);
+            }
+            for (int r = 0, n = size(); r < n; r++) {
+                int row = selection == null ? r : selection[r];
+                if (column.number(row) == wanted) {
+                    kept.add(row);
+                }
+            }
+        }
+        return new ColumnarTable<>(metadata, columns, size, kept.toArray());
+    }
+
+    // Count, sum, minimum and maximum of a numeric column per distinct combination of the key
+    // columns, which must be dictionary encoded. Groups come in the order their first row appears.
+    // Rows whose value did not parse still make their group but are left out of its aggregates.
+    public Groups groupBy(String valueField, String... keyFields) {
+        Column value = column(valueField);
+        if (value.codes != null) {
+            throw new IllegalArgumentException(valueField + " is not a numeric column");
+        }
+        if (keyFields.length == 0) {
+            throw new IllegalArgumentException("Group by at least one column");
+        }
+        Column[] keys = new Column[keyFields.length];
+        for (int k = 0; k < keys.length; k++) {
+            keys[k] = column(keyFields[k]);
+            if (keys[k].codes == null) {
+                throw new IllegalArgumentException(keyFields[k] + " is not a text column");
+            }
+        }
+        int n = size();
+        int[] groupOf = new int[n];
+        int groupCount = assignGroups(keys, groupOf);
+        Groups groups = new Groups(keys, groupCount);
+        for (int r = 0; r < n; r++) {
+            int row = selection == null ? r : selection[r];
+            groups.place(groupOf[r], row);
+            if (!value.isMissing(row)) {
+                groups.add(groupOf[r], value.number(row));
+            }
+        }
+        return groups;
+    }
+
+    // Number each row's combination of key codes densely, in order of first appearance, one key
+    // column at a time: a group so far and the next code give the group of the longer key
+    private int assignGroups(Column[] keys, int[] groupOf) {
+        int groupCount = groupOf.length == 0 ? 0 : 1;
+        for (Column key : keys) {
+            long width = Math.max(1, key.dictionary.size());
+            LongIntMap ids = new LongIntMap(-1, Math.min(groupOf.length, (int) Math.min(Integer.MAX_VALUE, groupCount * width)));
+            int next = 0;
+            for (int r = 0; r < groupOf.length; r++) {
+                int row = selection == null ? r : selection[r];
+                int id = ids.putIfAbsent(groupOf[r] * width + key.codes[row], next);
+                if (id == next) {
+                    next++;
+                }
+                groupOf[r] = id;
+            }
+            groupCount = next;
+        }
+        return groupCount;
+    }
+
+    // Estimated heap bytes held by the columns, counting each distinct text once
+    public long memoryBytes() {
+        long bytes = selection == null ? 0 : 16 + 4L * selection.length;
+        for (Column column : columns.values()) {
+            bytes += column.memoryBytes();
+        }
+        return bytes;
+    }
+
+    private Column column(String field) {
+        Column column = columns.get(field);
+        if (column == null) {
+            metadata.field(field);
+            throw new IllegalArgumentException(field + " is not one of the copied columns");
+        }
+        return column;
+    }
+
+    /**
+     * One column: parsed numbers, or codes into a dictionary of the distinct texts.
+     */
+    private static final class Column {
+        int[] ints;
+        long[] longs;
+        int[] codes;
+        List<String> dictionary;
+        Map<String, Integer> lookup;
+
+        Column(ColumnType type) {
+            switch (type) {
+                case INT, ENUM -> ints = new int[16];
+                case LONG -> longs = new long[16];
+                default -> {
+                    codes = new int[16];
+                    dictionary = new ArrayList<>();
+                    lookup = new HashMap<>();
+                }
+            }
+        }
+
+        void append(int row, FieldAccessor field, Object entity) {
+            if (ints != null) {
+                if (row == ints.length) {
+                    ints = Arrays.copyOf(ints, row * 2);
+                }
+                ints[row] = (int) field.getLong(entity);
+            } else if (longs != null) {
+                if (row == longs.length) {
+                    longs = Arrays.copyOf(longs, row * 2);
+                }
+                longs[row] = field.getLong(entity);
+            } else {
+                if (row == codes.length) {
+                    codes = Arrays.copyOf(codes, row * 2);
+                }
+                Object value = field.get(entity);
+                String text = value == null ? null : value.toString();
+                Integer code = lookup.get(text);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.add(text);
+                    lookup.put(text, code);
+                }
+                codes[row] = code;
+            }
+        }
+
+        void trim(int size) {
+            if (ints != null) {
+                ints = Arrays.copyOf(ints, size);
+            } else if (longs != null) {
+                longs = Arrays.copyOf(longs, size);
+            } else {
+                codes = Arrays.copyOf(codes, size);
+            }
+        }
+
+        long number(int row) {
+            return ints != null ? ints[row] : longs[row];
+        }
+
+        // Whether the row's text held no number, see ColumnType.NO_INT
+        boolean isMissing(int row) {
+            return ints != null ? ints[row] == ColumnType.NO_INT : longs[row] == ColumnType.NO_LONG;
+        }
+
+        long memoryBytes() {
+            if (ints != null) {
+                return 16 + 4L * ints.length;
+            }
+            if (longs != null) {
+                return 16 + 8L * longs.length;
+            }
+            // the codes, then per distinct text its string and its lookup entry
+            long bytes = 16 + 4L * codes.length;
+            for (String text : dictionary) {
+                bytes += 4 + 32 + 56 + (text == null ? 0 : 2L * text.length());
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Aggregates per group from {@link #groupBy}: the key texts of each group with the count,
+     * sum, minimum and maximum of its values.
+     */
+    public static final class Groups {
+        private final Column[] keys;
+        // a row of each group, to read its key codes back
+        private final int[] firstRow;
+        private final Accumulators values;
+
+        private Groups(Column[] keys, int size) {
+            this.keys = keys;
+            firstRow = new int[size];
+            Arrays.fill(firstRow, -1);
+            values = new Accumulators(size);
+        }
+
+        private void place(int group, int row) {
+            if (firstRow[group] < 0) {
+                firstRow[group] = row;
+            }
+        }
+
+        private void add(int group, long value) {
+            values.add(group, value);
+        }
+
+        public int size() {
+            return firstRow.length;
+        }
+
+        // The group's text in the first key column
+        public String key(int group) {
+            return key(group, 0);
+        }
+
+        // The group's text in the given key column, counted from 0 in groupBy order
+        public String key(int group, int keyColumn) {
+            Column key = keys[keyColumn];
+            return key.dictionary.get(key.codes[firstRow[group]]);
+        }
+
+        public long count(int group) {
+            return values.count(group);
+        }
+
+        public long sum(int group) {
+            return values.sum(group);
+        }
+
+        public long min(int group) {
+            return values.min(group);
+        }
+
+        public long max(int group) {
+            return values.max(group);
+        }
+
+        public double average(int group) {
+            return values.average(group);
+        }
+    }
+}
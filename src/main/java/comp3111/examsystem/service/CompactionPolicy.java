@@ -0,0 +1,50 @@
+package comp3111.examsystem.service;
+
+/**
+ * Decides when an append-only table file is worth compacting.
+ * A table is compacted once the share of dead records (superseded updates and tombstones)
+ * reaches the dead-record ratio, or once the file grows past the size threshold while it
+ * holds any dead records at all.
+ */
+public class CompactionPolicy {
+    private final double deadRecordRatio;
+    private final long fileSizeThreshold;
+    private final int minRecords;
+
+    /**
+     * @param deadRecordRatio   fraction of dead records (0..1) that triggers a compaction
+     * @param fileSizeThreshold file size in bytes that triggers a compaction, or 0 to disable
+     * @param minRecords        tables with fewer log records than this are never compacted by ratio
+     */
+    public CompactionPolicy(double deadRecordRatio, long fileSizeThreshold, int minRecords) {
+        if (deadRecordRatio <= 0 || deadRecordRatio > 1) {
+            throw new IllegalArgumentException("Dead record ratio must be in (0, 1]");
+        }
+        this.deadRecordRatio = deadRecordRatio;
+        this.fileSizeThreshold = fileSizeThreshold;
+        this.minRecords = minRecords;
+    }
+
+    public double getDeadRecordRatio() {
+        return deadRecordRatio;
+    }
+
+    public long getFileSizeThreshold() {
+        return fileSizeThreshold;
+    }
+
+    public int getMinRecords() {
+        return minRecords;
+    }
+
+    public boolean shouldCompact(long fileSize, int records, int liveRecords) {
+        int dead = records - liveRecords;
+        if (dead <= 0) {
+            return false;
+        }
+        if (fileSizeThreshold > 0 && fileSize >= fileSizeThreshold) {
+            return true;
+        }
+        return records >= minRecords && (double) dead / records >= deadRecordRatio;
+    }
+}
@@ -0,0 +1,56 @@
+package comp3111.examsystem.service;
+
+/**
+ * Outcome of compacting one table file.
+ */
+public class CompactionStats {
+    private final String tableName;
+    private final long durationMillis;
+    private final long bytesBefore;
+    private final long bytesAfter;
+    private final int recordsBefore;
+    private final int recordsAfter;
+
+    public CompactionStats(String tableName, long durationMillis, long bytesBefore, long bytesAfter, int recordsBefore, int recordsAfter) {
+        this.tableName = tableName;
+        this.durationMillis = durationMillis;
+        this.bytesBefore = bytesBefore;
+        this.bytesAfter = bytesAfter;
+        this.recordsBefore = recordsBefore;
+        this.recordsAfter = recordsAfter;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public long getBytesBefore() {
+        return bytesBefore;
+    }
+
+    public long getBytesAfter() {
+        return bytesAfter;
+    }
+
+    public long getBytesReclaimed() {
+        return bytesBefore - bytesAfter;
+    }
+
+    public int getRecordsBefore() {
+        return recordsBefore;
+    }
+
+    public int getRecordsAfter() {
+        return recordsAfter;
+    }
+
+    @Override
+    public String toString() {
+        return "Compacted " + tableName + " in " + durationMillis + " ms: " + recordsBefore + " -> " + recordsAfter
+                + " records, " + getBytesReclaimed() + " bytes reclaimed";
+    }
+}
@@ -0,0 +1,81 @@
+package comp3111.examsystem.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Compacts append-only table files in the background.
+ * Registered tables are checked periodically against a {@link CompactionPolicy}; a table that
+ * qualifies has its live records rewritten into a fresh file that is then swapped in atomically.
+ * Readers are never blocked, and writers only wait while records appended during the rewrite
+ * are carried over to the new file.
+ */
+public class Compactor {
+    private final CompactionPolicy policy;
+    private final List<Database<?>> tables = new CopyOnWriteArrayList<>();
+    private final Map<String, CompactionStats> lastStats = new ConcurrentHashMap<>();
+    private volatile Consumer<CompactionStats> listener = stats -> { };
+    private ScheduledExecutorService executor;
+
+    public Compactor(CompactionPolicy policy) {
+        this.policy = policy;
+    }
+
+    public void register(Database<?> table) {
+        tables.add(table);
+    }
+
+    // Called with the statistics of every compaction that completes
+    public void setListener(Consumer<CompactionStats> listener) {
+        this.listener = listener;
+    }
+
+    // The most recent compaction of a table, or null if it has not been compacted yet
+    public CompactionStats getLastStats(String tableName) {
+        return lastStats.get(tableName);
+    }
+
+    public synchronized void start(long period, TimeUnit unit) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "table-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::runOnce, period, period, unit);
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    // Check every registered table once and compact those the policy selects
+    public List<CompactionStats> runOnce() {
+        List<CompactionStats> results = new ArrayList<>();
+        for (Database<?> table : tables) {
+            try {
+                if (table.needsCompaction(policy)) {
+                    CompactionStats stats = table.compact();
+                    lastStats.put(stats.getTableName(), stats);
+                    results.add(stats);
+                    listener.accept(stats);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return results;
+    }
+}
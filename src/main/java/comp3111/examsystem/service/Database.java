@@ -1,32 +1,92 @@
 package comp3111.examsystem.service;
 
 import comp3111.examsystem.service.Entity;
+import comp3111.examsystem.service.Transaction.Mutation;
+import comp3111.examsystem.service.Transaction.Mutation.Kind;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Database<T> {
+    // When resident, each table is loaded once and served from memory (see TableCache)
+    private static volatile boolean residentMode = false;
+
+    // Tables stored as an append-only log of records and tombstones instead of being rewritten
+    private static final Set<String> APPEND_ONLY_TABLES = ConcurrentHashMap.newKeySet();
+    // Log record marking the deletion of the id that follows it
+    static final String TOMBSTONE = "!del:";
+    private static final ConcurrentMap<String, Object> COMPACTION_LOCKS = new ConcurrentHashMap<>();
+    // the source of ids for every database, or null for the generator of each data directory
+    private static volatile IdGenerator idGenerator;
+    // Table files whose ids the current generator has seen
+    private static final Set<String> SEEDED_TABLES = ConcurrentHashMap.newKeySet();
+    // Table files at least this large are read through a memory mapping instead of being copied onto the heap
+    static long mapThreshold = 1 << 20;
+    // Tables stored in a format other than TEXT
+    private static final ConcurrentMap<String, TableFormat> FORMATS = new ConcurrentHashMap<>();
+    private static volatile Durability durability = Durability.FSYNC;
+    // Binary log files -> their length after this process last appended a whole record to them
+    private static final ConcurrentMap<String, Long> WHOLE_LOG_LENGTHS = new ConcurrentHashMap<>();
+
     Class<T> entitySample;
+    EntityMetadata<T> metadata;
+    TableFormat format;
+    String directory;
     String tableName;
     String jsonFile;
 
     public Database(Class<T> entity) {
+        this(entity, Paths.get("src", "main", "resources", "database").toString());
+    }
+
+    public Database(Class<T> entity, String directory) {
         if (entity == null) {
             throw new IllegalArgumentException("Entity class cannot be null");
         }
 
         entitySample = entity;
+        metadata = EntityMetadata.of(entity);
+        this.directory = directory;
         tableName = entitySample.getSimpleName().toLowerCase();
-        jsonFile = Paths.get("src", "main", "resources", "database", tableName + ".txt").toString();
+        format = getFormat(entity);
+        jsonFile = Paths.get(directory, tableName + format.getExtension()).toString();
         File file = new File(jsonFile);
         if (!file.exists()) {
             try {
                 file.createNewFile();
+                if (format == TableFormat.BINARY) {
+                    FileUtil.writeBinFile(BinaryTableCodec.header(metadata), file);
+                }
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -34,134 +94,396 @@ public class Database<T> {
 
     }
 
+    // Turn the write-through in-memory table cache on or off for all databases
+    public static void setResidentMode(boolean resident) {
+        if (!resident) {
+            TableCache.clearAll();
+        }
+        residentMode = resident;
+    }
+
+    public static boolean isResidentMode() {
+        return residentMode;
+    }
+
+    // Store the entity's table as an append-only log: inserts, updates and deletes are appended
+    // to the end of the file and reads keep the latest record for each id
+    public static void setAppendOnly(Class<?> entity, boolean appendOnly) {
+        String table = entity.getSimpleName().toLowerCase();
+        if (appendOnly) {
+            APPEND_ONLY_TABLES.add(table);
+        } else {
+            APPEND_ONLY_TABLES.remove(table);
+        }
+        TableCache.clearAll();
+    }
+
+    public static boolean isAppendOnly(Class<?> entity) {
+        return APPEND_ONLY_TABLES.contains(entity.getSimpleName().toLowerCase());
+    }
+
+    // Choose the file format of the entity's table for databases opened after this call.
+    // Each format has its own file; use TableConverter to carry existing data across.
+    public static void setFormat(Class<?> entity, TableFormat format) {
+        String table = entity.getSimpleName().toLowerCase();
+        if (format == TableFormat.TEXT) {
+            FORMATS.remove(table);
+        } else {
+            FORMATS.put(table, format);
+        }
+        TableCache.clearAll();
+    }
+
+    public static TableFormat getFormat(Class<?> entity) {
+        return FORMATS.getOrDefault(entity.getSimpleName().toLowerCase(), TableFormat.TEXT);
+    }
+
+    // Choose how far every table write is forced to disk before it counts as done
+    public static void setDurability(Durability level) {
+        durability = level;
+    }
+
+    public static Durability getDurability() {
+        return durability;
+    }
+
+    // Replace the source of ids for rows added by every database, or with null go back to the
+    // SnowflakeIdGenerator of each data directory
+    public static void setIdGenerator(IdGenerator generator) {
+        idGenerator = generator;
+        SEEDED_TABLES.clear();
+    }
+
+    // The source of ids for rows added by this database
+    public IdGenerator getIdGenerator() {
+        IdGenerator generator = idGenerator;
+        return generator != null ? generator : SnowflakeIdGenerator.forDirectory(directory);
+    }
+
     // Query database based on key
     public T queryByKey(String key) {
-        List<String> slist = FileUtil.readFileByLines(jsonFile);
-
-        T res = null;
-        for (int i = 0; i < slist.size(); i++) {
-            T t = txtToEntity(slist.get(i));
-            Object tvalue = getValue(t, "id");
-            if (tvalue.toString().equals(key)) {
-                res = t;
-                break;
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            if (scansFile()) {
+                // ids are canonical, so the first row whose id reads as the key is the one
+                return parseKey(key) == null ? null : selectFirst("id", key);
             }
+            T res = readTable().get(parseKey(key));
+            return res == null ? null : detach(res);
+        } finally {
+            lock.unlockRead();
         }
-        return res;
     }
 
     // Query database based on keys
     public List<T> queryByKeys(List<String> keys) {
-        List<String> slist = FileUtil.readFileByLines(jsonFile);
-
-        List<T> res = new ArrayList<>();
-        for (int i = 0; i < slist.size(); i++) {
-            T t = txtToEntity(slist.get(i));
-            Object tvalue = getValue(t, "id");
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            Set<Long> ids = new HashSet<>();
             for (String key : keys) {
-                if (tvalue.toString().equals(key)) {
-                    res.add(t);
-                    break;
+                Long id = parseKey(key);
+                if (id != null) {
+                    ids.add(id);
                 }
             }
+            List<T> res = new ArrayList<>();
+            List<T> candidates = scansFile() ? select("id", keys) : readTable().rows();
+            for (T t : candidates) {
+                if (ids.contains(idOf(t))) {
+                    res.add(detach(t));
+                }
+            }
+            return res;
+        } finally {
+            lock.unlockRead();
         }
-        return res;
     }
 
     // Query database based on field
     public List<T> queryByField(String fieldName, String fieldValue) {
-        List<T> list = getAll();
-        List<T> resList = new ArrayList<>();
-        for (T e : list) {
-            Object value = getValue(e, fieldName);
-            if ((value == null && fieldValue != null) || (value != null && fieldValue == null) || !value.toString().equals(fieldValue)) {
-                continue;
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            if (scansFile() && fieldValue != null) {
+                return matching(select(fieldName, Collections.singleton(fieldValue)), fieldName, fieldValue);
             }
-            resList.add(e);
+            return matching(candidates(readTable(), fieldName, fieldValue), fieldName, fieldValue);
+        } finally {
+            lock.unlockRead();
         }
-        list.clear();
-        list.addAll(resList);
-        return list;
     }
 
-    // Query database based on field, but fuzzy matching
-    public List<T> queryFuzzyByField(String fieldName, String fieldValue) {
-        List<T> list = getAll();
-        List<T> resList = new ArrayList<>();
-        for (T e : list) {
-            Object value = getValue(e, fieldName);
-            if (fieldValue == null || value.toString().contains(fieldValue)) {
-                resList.add(e);
+    // The first row whose field has the value, in table order; stops reading at the first match
+    public Optional<T> findFirst(String fieldName, String fieldValue) {
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            if (scansFile() && fieldValue != null) {
+                return Optional.ofNullable(selectFirst(fieldName, fieldValue));
+            }
+            for (T e : candidates(readTable(), fieldName, fieldValue)) {
+                if (hasValue(e, fieldName, fieldValue)) {
+                    return Optional.of(detach(e));
+                }
             }
+            return Optional.empty();
+        } finally {
+            lock.unlockRead();
         }
-        list.clear();
-        list.addAll(resList);
-        return list;
     }
 
-    // Query database based on entity
-    public List<T> queryByEntity(T entity) {
-        List<T> list = getAll();
-        List<String> prolist = new ArrayList<>();
-        Class<?> clazz = entitySample;
-        while (true) {
-            for (Field field : clazz.getDeclaredFields()) {
-                if (!field.getName().equals("id") && !field.getName().equals("dbutil")) {
-                    Object obj = getValue(entity, field.getName());
-                    if (obj != null && !obj.toString().isEmpty()) {
-                        prolist.add(field.getName());
+    // Whether a row with the key exists
+    public boolean exists(String key) {
+        return queryByKey(key) != null;
+    }
+
+    // Every row in table order, decoded only as the stream reaches it, so a stream that stops
+    // early (findFirst, anyMatch, limit) never decodes the rest of the table. The stream reads a
+    // snapshot of the table taken when it is created, and needs no closing.
+    public Stream<T> stream() {
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            if (residentMode) {
+                return new ArrayList<>(readTable().rows()).stream().map(this::copyOf);
+            }
+            if (isAppendOnly(entitySample)) {
+                // a later record may override an earlier one, so the whole log is replayed first
+                return readFile(contents()).rows().stream();
+            }
+            // a table is rewritten by renaming a new file over it, so these bytes never change
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(fileRows(),
+                    Spliterator.ORDERED | Spliterator.NONNULL), false);
+        } finally {
+            lock.unlockRead();
+        }
+    }
+
+    // Rows matching the query. An equality on an indexed field, a substring of a trigram-indexed
+    // field or a range on a range-indexed field narrows the rows to test through the index, or an
+    // equality through the raw-byte filter when the file is scanned; without ordering the scan
+    // stops as soon as the limit is reached.
+    public List<T> query(Query<T> query) {
+        if (query.metadata() != metadata) {
+            throw new IllegalArgumentException("Query is not on the " + tableName + " table");
+        }
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            List<String[]> equalities = query.requiredEqualities();
+            Iterator<T> candidates;
+            if (scansFile()) {
+                candidates = equalities.isEmpty() ? fileRows()
+                        : select(equalities.get(0)[0], Collections.singleton(equalities.get(0)[1])).iterator();
+            } else {
+                TableCache<T> table = readTable();
+                List<T> narrowest = table.rows();
+                for (String[] equality : equalities) {
+                    List<T> rows = candidates(table, equality[0], equality[1]);
+                    if (rows.size() < narrowest.size()) {
+                        narrowest = rows;
+                    }
+                }
+                for (String[] part : query.requiredContains()) {
+                    List<T> rows = narrowByText(table, part[0], part[1]);
+                    if (rows != null && rows.size() < narrowest.size()) {
+                        narrowest = rows;
+                    }
+                }
+                for (String[] range : query.requiredRanges()) {
+                    RangeIndex<T> index = table.rangeIndex(range[0]);
+                    List<T> rows = index == null ? null : index.range(range[1], range[2]);
+                    if (rows != null && rows.size() < narrowest.size()) {
+                        // the index sorts by value; an unordered query still returns rows as a scan would
+                        narrowest = query.isOrdered() ? rows : table.inTableOrder(rows);
                     }
                 }
+                candidates = narrowest.iterator();
+            }
+            Predicate<T> test = query.toPredicate();
+            int limit = query.isOrdered() ? -1 : query.getLimit();
+            List<T> resList = new ArrayList<>();
+            while (resList.size() != limit && candidates.hasNext()) {
+                T t = candidates.next();
+                if (test.test(t)) {
+                    resList.add(detach(t));
+                }
+            }
+            return query.finish(resList);
+        } finally {
+            lock.unlockRead();
+        }
+    }
+
+    // The rows that may have the value: narrowed with the primary or a secondary index when there is one
+    private List<T> candidates(TableCache<T> table, String fieldName, String fieldValue) {
+        if (fieldValue != null) {
+            HashIndex<T> index = table.index(fieldName);
+            if (fieldName.equals("id")) {
+                return table.getAll(parseKey(fieldValue));
+            } else if (index != null) {
+                return index.get(fieldValue);
             }
-            if (clazz.equals(Object.class)) {
-                break;
+        }
+        return table.rows();
+    }
+
+    // The rows that may contain the text according to the field's trigram index, or null without one
+    private List<T> narrowByText(TableCache<T> table, String fieldName, String text) {
+        TrigramIndex<T> index = table.trigramIndex(fieldName);
+        return index == null ? null : index.candidates(text);
+    }
+
+    // Estimated heap bytes held by the trigram index on the field, or -1 when the field has no
+    // trigram index or tables are not resident, since indexes only live in the resident copy
+    public long trigramIndexFootprint(String fieldName) {
+        if (!residentMode || !metadata.trigramIndexedFields().contains(fieldName)) {
+            return -1;
+        }
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            return readTable().trigramIndex(fieldName).memoryBytes();
+        } finally {
+            lock.unlockRead();
+        }
+    }
+
+    // The rows whose field lies between the bounds, both inclusive, sorted by the field with ties
+    // in table order; a null bound is open. Numbers compare by value, before any text, so
+    // range("studentScore", 40, 60) finds the scores from 40 to 60 without parsing every row
+    // when the field is @RangeIndexed and the table resident.
+    public List<T> range(String fieldName, Object from, Object to) {
+        return query(Query.from(entitySample).where(fieldName, Query.range(from, to)).orderBy(fieldName));
+    }
+
+    // The named fields of every row copied into columns for aggregation. Resident rows are read
+    // in place and a scanned file is decoded one row at a time, so no list of rows is built.
+    public ColumnarTable<T> columns(String... fieldNames) {
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            Iterator<T> rows = scansFile() ? fileRows() : readTable().rows().iterator();
+            return ColumnarTable.of(entitySample, rows, fieldNames);
+        } finally {
+            lock.unlockRead();
+        }
+    }
+
+    // The rows whose @Searchable fields best match the words of the text, best first, at most
+    // limit of them. Ranked with BM25; the resident table keeps its word index up to date, other
+    // calls index the table for this search only.
+    public List<T> search(String text, int limit) {
+        return search(text, limit, row -> true);
+    }
+
+    // The best matches among the rows accepted by the filter, such as a query's predicate; the
+    // filter is applied before the limit, so a match ranked below it is still found.
+    public List<T> search(String text, int limit, Predicate<? super T> filter) {
+        if (metadata.searchableFields().isEmpty()) {
+            throw new IllegalStateException("The " + tableName + " table has no @Searchable fields");
+        }
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            TableCache<T> table = readTable();
+            FullTextIndex<T> index = table.textIndex();
+            if (index == null) {
+                index = new FullTextIndex<>(new ArrayList<>(accessors(metadata.searchableFields()).values()));
+                for (T row : table.rows()) {
+                    index.add(row);
+                }
             }
-            else {
-                clazz = clazz.getSuperclass();
+            List<T> resList = new ArrayList<>();
+            for (T row : index.search(text, limit, filter)) {
+                resList.add(detach(row));
             }
+            return resList;
+        } finally {
+            lock.unlockRead();
         }
+    }
+
+    private List<T> matching(List<T> candidates, String fieldName, String fieldValue) {
         List<T> resList = new ArrayList<>();
-        for (T e : list) {
-            boolean flag = true;
-            for (int i = 0; i < prolist.size(); i++) {
-                String filterProp = prolist.get(i);
-                String queryValue = getValue(entity, filterProp).toString();
-                Object value = getValue(e, filterProp);
-                if ((queryValue == null && value != null) || (queryValue != null && value == null) || !value.toString().equals(queryValue)) {
-                    flag = false;
-                    break;
+        for (T e : candidates) {
+            if (hasValue(e, fieldName, fieldValue)) {
+                resList.add(detach(e));
+            }
+        }
+        return resList;
+    }
+
+    private boolean hasValue(T e, String fieldName, String fieldValue) {
+        Object value = getValue(e, fieldName);
+        return !((value == null && fieldValue != null) || (value != null && fieldValue == null) || !value.toString().equals(fieldValue));
+    }
+
+    // Query database based on field, but fuzzy matching
+    public List<T> queryFuzzyByField(String fieldName, String fieldValue) {
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            TableCache<T> table = readTable();
+            List<T> candidates = fieldValue == null ? null : narrowByText(table, fieldName, fieldValue);
+            List<T> resList = new ArrayList<>();
+            for (T e : candidates == null ? table.rows() : candidates) {
+                Object value = getValue(e, fieldName);
+                if (fieldValue == null || value.toString().contains(fieldValue)) {
+                    resList.add(detach(e));
                 }
             }
-            if (flag) {
-                resList.add(e);
+            return resList;
+        } finally {
+            lock.unlockRead();
+        }
+    }
+
+    // Query database based on entity: every non-empty field other than the key must match
+    public List<T> queryByEntity(T entity) {
+        Query<T> query = Query.from(entitySample);
+        for (FieldAccessor field : metadata.fields()) {
+            if (!field.getName().equals("id")) {
+                Object obj = field.get(entity);
+                if (obj != null && !obj.toString().isEmpty()) {
+                    query.and(field.getName(), Query.eq(obj));
+                }
             }
         }
-        list.clear();
-        list.addAll(resList);
-        return list;
+        return query(query);
     }
 
     // Query all the data from database
     public List<T> getAll() {
-        List<String> slist = FileUtil.readFileByLines(jsonFile);
-        List<T> tlist = new ArrayList<>();
-        for (int i = 0; i < slist.size(); i++) {
-            tlist.add(txtToEntity(slist.get(i)));
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            List<T> tlist = readTable().rows();
+            if (residentMode) {
+                List<T> copies = new ArrayList<>(tlist.size());
+                for (T t : tlist) {
+                    copies.add(copyOf(t));
+                }
+                tlist = copies;
+            }
+            return tlist;
+        } finally {
+            lock.unlockRead();
         }
-        return tlist;
     }
 
-    // Join two table
+    // Join two table: the rows of list1 whose id also appears in list2, found through a hash set
     public List<T> join(List<T> list1, List<T> list2) {
+        Set<Long> ids = new HashSet<>(list2.size() * 2);
+        for (T t : list2) {
+            ids.add(idOf(t));
+        }
         List<T> resList = new ArrayList<>();
-        for (int i = 0; i < list1.size(); i++) {
-            for (int j = 0; j < list2.size(); j++) {
-                Long id1 = (Long) getValue(list1.get(i), "id");
-                Long id2 = (Long) getValue(list2.get(j), "id");
-                if (id1.toString().equals(id2.toString())) {
-                    resList.add(list1.get(i));
-                    break;
-                }
+        for (T t : list1) {
+            if (ids.contains(idOf(t))) {
+                resList.add(t);
             }
         }
         return resList;
@@ -169,183 +491,769 @@ public class Database<T> {
 
     // Delete from database by key
     public void delByKey(String key) {
-        List<T> tlist = getAll();
-        for (int i = 0; i < tlist.size(); i++) {
-            Object value = getValue(tlist.get(i), "id");
-            if (value.toString().equals(key)) {
-                tlist.remove(i);
-                break;
-            }
-        }
+        TableLock lock = lock();
+        lock.lockWrite();
         try {
-            FileUtil.writeTxtFile(listToStr(tlist), new File(jsonFile));
-        } catch (Exception e) {
-            e.printStackTrace();
+            if (stage(Kind.DELETE, parseKey(key), null)) {
+                return;
+            }
+            if (isAppendOnly(entitySample)) {
+                // a tombstone for an id that is not there is harmless, so there is nothing to read
+                Long id = parseKey(key);
+                TableCache<T> table = residentTable();
+                T row = table == null ? null : table.get(id);
+                if (row != null) {
+                    table.remove(row);
+                }
+                if (id != null) {
+                    append(table, encodeTombstone(id));
+                }
+                return;
+            }
+            TableCache<T> table = table();
+            T row = table.get(parseKey(key));
+            if (row != null) {
+                table.remove(row);
+            }
+            save(table);
+        } finally {
+            lock.unlockWrite();
         }
     }
 
     // Delete from database by field
     public void delByFiled(String fieldName, String fieldValue) {
-        List<T> tlist = getAll();
-        for (int i = 0; i < tlist.size(); i++) {
-            Object value = getValue(tlist.get(i), fieldName);
-            if (value.toString().equals(fieldValue)) {
-                tlist.remove(i);
-                break;
-            }
-        }
+        TableLock lock = lock();
+        lock.lockWrite();
         try {
-            FileUtil.writeTxtFile(listToStr(tlist), new File(jsonFile));
-        } catch (Exception e) {
-            e.printStackTrace();
+            TableCache<T> table = table();
+            for (T row : table.rows()) {
+                Object value = getValue(row, fieldName);
+                if (value.toString().equals(fieldValue)) {
+                    if (stage(Kind.DELETE, idOf(row), null)) {
+                        return;
+                    }
+                    table.remove(row);
+                    if (isAppendOnly(entitySample)) {
+                        append(table, encodeTombstone(idOf(row)));
+                        return;
+                    }
+                    break;
+                }
+            }
+            if (!isAppendOnly(entitySample)) {
+                save(table);
+            }
+        } finally {
+            lock.unlockWrite();
         }
     }
 
     // Update database according the entity key
     public void update(T entity) {
-        Long key1 = (Long) getValue(entity, "id");
-        List<T> tlist = getAll();
-        for (int i = 0; i < tlist.size(); i++) {
-            Long key = (Long) getValue(tlist.get(i), "id");
-
-            if (key.toString().equals(key1.toString())) {
-                Class<?> clazz = entitySample;
-                while (true) {
-                    for (Field field : clazz.getDeclaredFields()) {
-                        if (!field.getName().equals("id") && !field.getName().equals("dbutil")) {
-                            Object o = getValue(entity, field.getName());
-                            setValue(tlist.get(i), field.getName(), o);
-                        }
-                    }
-                    if (clazz.equals(Object.class)) {
-                        break;
-                    } else {
-                        clazz = clazz.getSuperclass();
+        TableLock lock = lock();
+        lock.lockWrite();
+        try {
+            if (stage(Kind.UPDATE, idOf(entity), entity)) {
+                return;
+            }
+            TableCache<T> table = table();
+            T row = table.get(idOf(entity));
+            if (row != null) {
+                table.update(row, r -> copyFields(entity, r));
+                if (isAppendOnly(entitySample)) {
+                    append(table, encodeRecord(row));
+                    return;
+                }
+            }
+            if (!isAppendOnly(entitySample)) {
+                save(table);
+            }
+        } finally {
+            lock.unlockWrite();
+        }
+    }
+
+    // Add data into database
+    public void add(T entity) {
+        TableLock lock = lock();
+        lock.lockWrite();
+        try {
+            setValue(entity, "id", nextId());
+            if (stage(Kind.ADD, idOf(entity), entity)) {
+                return;
+            }
+            if (isAppendOnly(entitySample)) {
+                TableCache<T> table = residentTable();
+                if (table != null) {
+                    table.add(detach(entity));
+                }
+                append(table, encodeRecord(entity));
+                return;
+            }
+            TableCache<T> table = table();
+            table.add(detach(entity));
+            save(table);
+        } finally {
+            lock.unlockWrite();
+        }
+    }
+
+    // Add several entities with a single read and a single write of the table file
+    public void addAll(List<T> entities) {
+        TableLock lock = lock();
+        lock.lockWrite();
+        try {
+            if (entities.isEmpty()) {
+                return;
+            }
+            for (T entity : entities) {
+                setValue(entity, "id", nextId());
+            }
+            if (Transaction.current() != null) {
+                for (T entity : entities) {
+                    stage(Kind.ADD, idOf(entity), entity);
+                }
+                return;
+            }
+            if (isAppendOnly(entitySample)) {
+                TableCache<T> table = residentTable();
+                ByteArrayOutputStream records = new ByteArrayOutputStream();
+                for (T entity : entities) {
+                    if (table != null) {
+                        table.add(detach(entity));
                     }
+                    records.writeBytes(encodeRecord(entity));
                 }
-                break;
+                append(table, records.toByteArray(), entities.size());
+                return;
             }
+            TableCache<T> table = table();
+            for (T entity : entities) {
+                table.add(detach(entity));
+            }
+            save(table);
+        } finally {
+            lock.unlockWrite();
         }
+    }
+
+    // Update several entities by key with a single read and a single write of the table file
+    public void updateAll(List<T> entities) {
+        TableLock lock = lock();
+        lock.lockWrite();
         try {
-            FileUtil.writeTxtFile(listToStr(tlist), new File(jsonFile));
-        } catch (Exception e) {
-            e.printStackTrace();
+            if (Transaction.current() != null) {
+                for (T entity : entities) {
+                    stage(Kind.UPDATE, idOf(entity), entity);
+                }
+                return;
+            }
+            TableCache<T> table = table();
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            int updated = 0;
+            for (T entity : entities) {
+                T row = table.get(idOf(entity));
+                if (row != null) {
+                    table.update(row, r -> copyFields(entity, r));
+                    records.writeBytes(encodeRecord(row));
+                    updated++;
+                }
+            }
+            if (updated == 0) {
+                return;
+            }
+            if (isAppendOnly(entitySample)) {
+                append(table, records.toByteArray(), updated);
+            } else {
+                save(table);
+            }
+        } finally {
+            lock.unlockWrite();
         }
     }
 
-    // Add data into database
-    public void add(T entity) {
-        setValue(entity, "id", System.currentTimeMillis());
-        List<T> tlist = getAll();
-        tlist.add(entity);
+    // Delete several rows by key with a single read and a single write of the table file
+    public void deleteByKeys(List<String> keys) {
+        TableLock lock = lock();
+        lock.lockWrite();
         try {
-            FileUtil.writeTxtFile(listToStr(tlist), new File(jsonFile));
-        } catch (Exception e) {
-            e.printStackTrace();
+            List<Long> ids = new ArrayList<>();
+            for (String key : keys) {
+                Long id = parseKey(key);
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+            if (Transaction.current() != null) {
+                for (Long id : ids) {
+                    stage(Kind.DELETE, id, null);
+                }
+                return;
+            }
+            if (isAppendOnly(entitySample)) {
+                TableCache<T> table = residentTable();
+                ByteArrayOutputStream records = new ByteArrayOutputStream();
+                for (Long id : ids) {
+                    T row = table == null ? null : table.get(id);
+                    if (row != null) {
+                        table.remove(row);
+                    }
+                    records.writeBytes(encodeTombstone(id));
+                }
+                append(table, records.toByteArray(), ids.size());
+                return;
+            }
+            TableCache<T> table = table();
+            boolean removed = false;
+            for (Long id : ids) {
+                T row = table.get(id);
+                if (row != null) {
+                    table.remove(row);
+                    removed = true;
+                }
+            }
+            if (removed) {
+                save(table);
+            }
+        } finally {
+            lock.unlockWrite();
         }
     }
 
-    private Object getValue(Object entity, String fieldName) {
-        Object value;
-        Class<?> clazz = entity.getClass();
-        while (true) {
-            try {
-                Field field = clazz.getDeclaredField(fieldName);
-                field.setAccessible(true);
-                value = field.get(entity);
-                break;
+    // Stage a change in the transaction open on this thread instead of writing it; false if there is none
+    private boolean stage(Kind kind, Long id, T entity) {
+        Transaction transaction = Transaction.current();
+        if (transaction == null) {
+            return false;
+        }
+        if (id != null) {
+            transaction.stage(this, new Mutation(kind, id, entity == null ? null : copyOf(entity)));
+        }
+        return true;
+    }
+
+    // Apply a committed transaction's changes to this table with one read and one write.
+    // Applying them a second time gives the same table, so recovery can redo a partly applied transaction.
+    @SuppressWarnings("unchecked")
+    void apply(List<Mutation> mutations) {
+        TableLock lock = lock();
+        lock.lockWrite();
+        try {
+            TableCache<T> table = table();
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            int count = 0;
+            for (Mutation mutation : mutations) {
+                T row = table.get(mutation.id);
+                T entity = (T) mutation.entity;
+                switch (mutation.kind) {
+                    case ADD, UPDATE -> {
+                        if (row != null) {
+                            table.update(row, r -> copyFields(entity, r));
+                        } else if (mutation.kind == Kind.ADD) {
+                            row = copyOf(entity);
+                            table.add(row);
+                        } else {
+                            continue;
+                        }
+                        records.writeBytes(encodeRecord(row));
+                    }
+                    case DELETE -> {
+                        if (row != null) {
+                            table.remove(row);
+                        }
+                        records.writeBytes(encodeTombstone(mutation.id));
+                    }
+                }
+                count++;
             }
-            catch (NoSuchFieldException e) {
-                if (clazz.equals(Object.class))
-                    throw new RuntimeException(e);
+            if (isAppendOnly(entitySample)) {
+                if (count > 0) {
+                    append(table, records.toByteArray(), count);
+                }
+            } else {
+                save(table);
             }
-            catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
+        } finally {
+            lock.unlockWrite();
+        }
+    }
+
+    // Load the whole table with its id index, served from the shared in-memory copy in resident mode
+    private TableCache<T> table() {
+        TableCache<T> table;
+        if (residentMode) {
+            table = sharedCache();
+            if (table.isLoaded()) {
+                return table;
             }
-            clazz = clazz.getSuperclass();
+        } else {
+            table = new TableCache<>(new File(jsonFile), this::idOf);
         }
-        return value;
+        Replay replay = readFile(contents());
+        table.load(replay.rows(), replay.records);
+        return table;
     }
 
-    private void setValue(Object entity, String fieldName, Object fieldValue) {
-        Class<?> clazz = entity.getClass();
-        while (true) {
+    // Load the table for a query; the caller holds the read lock. A resident table that has to be
+    // (re)loaded is filled under the write lock, which is then downgraded back to the read lock.
+    private TableCache<T> readTable() {
+        if (!residentMode) {
+            return table();
+        }
+        TableCache<T> table = sharedCache();
+        if (table.isLoaded()) {
+            return table;
+        }
+        TableLock lock = lock();
+        lock.unlockRead();
+        lock.lockWrite();
+        try {
+            return table();
+        } finally {
+            lock.lockRead();
+            lock.unlockWrite();
+        }
+    }
+
+    // The shared in-memory table in resident mode, or null when every call reads the file
+    private TableCache<T> residentTable() {
+        return residentMode ? table() : null;
+    }
+
+    // Whether a lookup should scan the file rather than load the whole table: there is no resident
+    // copy to consult, and the file is not a log where later records override earlier ones
+    private boolean scansFile() {
+        return !residentMode && !isAppendOnly(entitySample);
+    }
+
+    // Decode only the rows whose field has one of the given values, straight from the file
+    private List<T> select(String fieldName, Collection<String> values) {
+        Replay replay = new Replay();
+        if (format == TableFormat.BINARY) {
+            BinaryTableCodec.select(contents(), metadata, fieldName, values, replay);
+        } else {
+            RecordCodec.select(contents(), metadata, fieldName, values, replay);
+        }
+        return replay.rows();
+    }
+
+    // Rows of a table that is rewritten rather than logged, decoded as the iterator reaches them
+    private Iterator<T> fileRows() {
+        ByteBuffer data = contents();
+        return format == TableFormat.BINARY ? BinaryTableCodec.rows(data, metadata) : RecordCodec.rows(data, metadata);
+    }
+
+    // Decode rows straight from the file only until one has the value
+    private T selectFirst(String fieldName, String fieldValue) {
+        First first = new First(fieldName, fieldValue);
+        if (format == TableFormat.BINARY) {
+            BinaryTableCodec.select(contents(), metadata, fieldName, Collections.singleton(fieldValue), first);
+        } else {
+            RecordCodec.select(contents(), metadata, fieldName, Collections.singleton(fieldValue), first);
+        }
+        return first.found;
+    }
+
+    /**
+     * Keeps the first row with a value and stops the reader there. The byte-level filter of a
+     * select also passes rows without the field, so each decoded row is checked again.
+     */
+    private class First implements RecordVisitor<T> {
+        private final String fieldName;
+        private final String fieldValue;
+        T found;
+
+        First(String fieldName, String fieldValue) {
+            this.fieldName = fieldName;
+            this.fieldValue = fieldValue;
+        }
+
+        @Override
+        public void row(T row) {
+            if (found == null && hasValue(row, fieldName, fieldValue)) {
+                found = row;
+            }
+        }
+
+        @Override
+        public void deleted(long id) {
+        }
+
+        @Override
+        public boolean isDone() {
+            return found != null;
+        }
+    }
+
+    // The bytes of the table file, mapped rather than copied when the file is large
+    private ByteBuffer contents() {
+        if (new File(jsonFile).length() >= mapThreshold) {
             try {
-                Field field = clazz.getDeclaredField(fieldName);
-                field.setAccessible(true);
-                field.set(entity, fieldValue);
-                break;
+                return FileUtil.mapFile(jsonFile);
+            } catch (IOException e) {
+                // fall back to copying the file, which reports the failure if it is not readable
             }
-            catch (NoSuchFieldException e) {
-                if (clazz.equals(Object.class))
-                    throw new RuntimeException(e);
+        }
+        try {
+            return ByteBuffer.wrap(FileUtil.readFileBytes(jsonFile));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read table " + tableName, e);
+        }
+    }
+
+    private Replay readFile(ByteBuffer data) {
+        Replay replay = new Replay();
+        if (format == TableFormat.BINARY) {
+            BinaryTableCodec.read(data, metadata, replay);
+        } else {
+            RecordCodec.read(data, metadata, replay, isAppendOnly(entitySample));
+        }
+        if (replay.records > 0) {
+            getIdGenerator().observe(replay.maxId);
+        }
+        return replay;
+    }
+
+    /**
+     * Collects the rows of a table file. An append-only table is replayed as a log: a later
+     * record for an id replaces the earlier one in place, and a tombstone removes it.
+     */
+    private class Replay implements RecordVisitor<T> {
+        private final boolean log = isAppendOnly(entitySample);
+        private final List<T> rows = new ArrayList<>();
+        private final Map<Long, T> live = new LinkedHashMap<>();
+        int records;
+        long maxId = Long.MIN_VALUE;
+
+        @Override
+        public void row(T row) {
+            records++;
+            Long id = idOf(row);
+            if (id != null && id > maxId) {
+                maxId = id;
             }
-            catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
+            if (log) {
+                live.put(id, row);
+            } else {
+                rows.add(row);
             }
-            clazz = clazz.getSuperclass();
         }
-    }
 
-    private String listToStr(List<T> tlist) {
-        StringBuilder sbf = new StringBuilder();
-        for (T t : tlist) {
-            sbf.append(entityToTxt(t)).append("\r\n");
+        @Override
+        public void deleted(long id) {
+            records++;
+            maxId = Math.max(maxId, id);
+            live.remove(id);
+        }
+
+        List<T> rows() {
+            return log ? new ArrayList<>(live.values()) : rows;
         }
-        return sbf.toString();
     }
 
-    private T txtToEntity(String txt) {
-        T t = null;
+    // Append one log record to the table file, keeping the resident copy in step with it
+    private void append(TableCache<T> table, byte[] record) {
+        append(table, record, 1);
+    }
+
+    // Append a run of encoded records in one write; the caller holds the write lock
+    private void append(TableCache<T> table, byte[] records, int count) {
+        File file = new File(jsonFile);
         try {
-            t = entitySample.getConstructor().newInstance();
-            String[] pros = txt.split(",");
-            for (int i = 0; i < pros.length; i++) {
-                String[] pro = pros[i].split(":");
-                if (pro[0].equals("id")) {
-                    setValue(t, pro[0], Long.valueOf(pro[1]));
-                } else {
-                    setValue(t, pro[0], pro[1]);
+            dropTornTail(file);
+            if (format == TableFormat.BINARY) {
+                if (file.length() == 0) {
+                    FileUtil.writeBinFile(BinaryTableCodec.header(metadata), file);
                 }
+                FileUtil.appendBinFile(records, file, durability);
+                WHOLE_LOG_LENGTHS.put(jsonFile, file.length());
+            } else {
+                FileUtil.appendTxtFile(new String(records, StandardCharsets.UTF_8), file, durability);
+            }
+        } catch (IOException e) {
+            if (table != null) {
+                table.invalidate();
             }
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException |
-                 NoSuchMethodException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException("Cannot append to table " + tableName, e);
+        }
+        if (table != null) {
+            table.recordsAppended(count);
+            table.stamp();
         }
-        return t;
     }
 
-    private String entityToTxt(T t) {
-        if (entitySample == null) {
-            throw new IllegalStateException("entitySample is not initialized.");
+    // Cut off a record left half-written by an append that crashed, which readers already skip,
+    // so the next record does not end up behind it. A text log is whole if it ends with a line
+    // break or its last line decodes; in the latter case only the line break is missing, and the
+    // append puts one in front of the new records. A binary log has to be walked frame by frame,
+    // so that is done only when the file has changed since this process last appended to it.
+    private void dropTornTail(File file) throws IOException {
+        long length = file.length();
+        if (length == 0) {
+            return;
+        }
+        if (format == TableFormat.BINARY) {
+            Long whole = WHOLE_LOG_LENGTHS.get(jsonFile);
+            if (whole != null && whole == length) {
+                return;
+            }
+        } else {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.seek(length - 1);
+                int last = raf.read();
+                if (last == '\n' || last == '\r') {
+                    return;
+                }
+            }
         }
+        ByteBuffer data = contents();
+        long complete = format == TableFormat.BINARY ? BinaryTableCodec.completeLength(data) : RecordCodec.completeLength(data, metadata);
+        if (complete < length) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(complete);
+            }
+        }
+    }
 
-        StringBuffer sbf = new StringBuffer();
-        Class<?> clazz = entitySample;
+    // Whether this append-only table has enough dead records for the policy to compact it
+    boolean needsCompaction(CompactionPolicy policy) {
+        TableLock lock = lock();
+        lock.lockRead();
+        try {
+            if (!isAppendOnly(entitySample)) {
+                return false;
+            }
+            File file = new File(jsonFile);
+            TableCache<T> table = residentMode ? readTable() : null;
+            if (table != null) {
+                return policy.shouldCompact(file.length(), table.records(), table.rows().size());
+            }
+            Replay replay = readFile(contents());
+            return policy.shouldCompact(file.length(), replay.records, replay.rows().size());
+        } finally {
+            lock.unlockRead();
+        }
+    }
 
-        while (true) {
-            for (Field field : clazz.getDeclaredFields()) {
-                if (!field.getName().equals("dbutil")) {
-                    Object obj = getValue(t, field.getName());
+    // Rewrite an append-only table file with only its live records and swap it in atomically.
+    // The old file is replayed without holding the write lock; records appended meanwhile are
+    // copied over just before the swap, so concurrent writes are never lost.
+    public CompactionStats compact() throws IOException {
+        synchronized (COMPACTION_LOCKS.computeIfAbsent(new File(jsonFile).getAbsolutePath(), path -> new Object())) {
+            long start = System.currentTimeMillis();
+            Path file = Paths.get(jsonFile);
+            Path temp = Paths.get(jsonFile + ".compact");
+            TableLock lock = lock();
+            long snapshot;
+            Object identity;
+            lock.lockWrite();
+            try {
+                snapshot = Files.size(file);
+                identity = identity(file);
+            } finally {
+                lock.unlockWrite();
+            }
+            Replay replay = readFile(ByteBuffer.wrap(readBytes(file, 0, snapshot)));
+            List<T> live = replay.rows();
+            Files.write(temp, encodeTable(live));
 
-                    if (obj != null && !obj.toString().isEmpty()) {
-                        sbf.append(field.getName()).append(":").append(obj).append(",");
+            lock.lockWrite();
+            try {
+                long end = Files.size(file);
+                if (!identity.equals(identity(file)) || end < snapshot) {
+                    // another process compacted or rewrote the table meanwhile; its result stands
+                    Files.deleteIfExists(temp);
+                    throw new IOException("Table " + tableName + " was replaced during compaction");
+                }
+                byte[] tail = readBytes(file, snapshot, end);
+                int tailRecords = 0;
+                if (format == TableFormat.BINARY) {
+                    tailRecords = BinaryTableCodec.countFrames(tail);
+                } else {
+                    for (byte b : tail) {
+                        if (b == '\n') {
+                            tailRecords++;
+                        }
                     }
                 }
+                Files.write(temp, tail, StandardOpenOption.APPEND);
+                FileUtil.sync(temp, durability);
+                TableCache<T> table = residentMode ? sharedCache() : null;
+                boolean current = table != null && table.isLoaded();
+                FileUtil.replace(temp, file, durability);
+                long after = Files.size(file);
+                if (current) {
+                    // the live rows are unchanged, only the file under them was rewritten
+                    table.compacted(live.size() + tailRecords);
+                }
+                return new CompactionStats(tableName, System.currentTimeMillis() - start, end, after,
+                        replay.records + tailRecords, live.size() + tailRecords);
+            } finally {
+                lock.unlockWrite();
             }
+        }
+    }
 
-//            if (clazz.equals(Entity.class)) {
-//                break;
-//            } else {
-//                clazz = clazz.getSuperclass();
-//            }
-            if (clazz.equals(Object.class)) {
-                break;
-            } else {
-                clazz = clazz.getSuperclass();
+    // Something that changes when the file is replaced rather than appended to
+    private static Object identity(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+    }
+
+    private static byte[] readBytes(Path file, long from, long to) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+            long position = from;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
             }
+            return buffer.array();
         }
+    }
+
+    // The lock of this database's table file, shared with every database and process using it:
+    // queries share the read lock, and mutations and the compaction swap take the write lock
+    TableLock lock() {
+        return TableLock.forFile(jsonFile);
+    }
 
+    // Write the table back to its file, keeping the resident copy in step with it
+    private void save(TableCache<T> table) {
+        try {
+            // a crash mid-write leaves the old file in place rather than a truncated one
+            FileUtil.writeAtomic(encodeTable(table.rows()), Paths.get(jsonFile), durability);
+        } catch (IOException e) {
+            // the resident rows hold changes the file does not, so they are read again
+            table.invalidate();
+            throw new UncheckedIOException("Cannot write table " + tableName, e);
+        }
+        table.stamp();
+    }
+
+    // The resident copy of this table shared by every database on the file, loaded or not
+    private TableCache<T> sharedCache() {
+        return TableCache.forFile(new File(jsonFile), this::idOf, accessors(metadata.indexedFields()),
+                accessors(metadata.trigramIndexedFields()), accessors(metadata.rangeIndexedFields()),
+                new ArrayList<>(accessors(metadata.searchableFields()).values()));
+    }
+
+    private Map<String, Function<T, Object>> accessors(List<String> names) {
+        Map<String, Function<T, Object>> fields = new HashMap<>();
+        for (String name : names) {
+            FieldAccessor field = metadata.field(name);
+            fields.put(name, field::get);
+        }
+        return fields;
+    }
+
+    private Long idOf(T t) {
+        return (Long) getValue(t, "id");
+    }
+
+    // Keys are compared by their string form, so only the canonical spelling of an id matches
+    private static Long parseKey(String key) {
+        if (key == null) {
+            return null;
+        }
+        try {
+            Long id = Long.valueOf(key);
+            return id.toString().equals(key) ? id : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // The next id from the generator, which first sees every id in this table once per process;
+    // the caller holds the write lock
+    private long nextId() {
+        if (SEEDED_TABLES.add(new File(jsonFile).getAbsolutePath())) {
+            readFile(contents());
+        }
+        return getIdGenerator().nextId();
+    }
+
+    // Cached rows are shared, so callers get their own copy to modify
+    private T detach(T t) {
+        return residentMode ? copyOf(t) : t;
+    }
+
+    // Copy every field except the key
+    private void copyFields(T from, T to) {
+        for (FieldAccessor field : metadata.fields()) {
+            if (!field.getName().equals("id")) {
+                field.copy(from, to);
+            }
+        }
+    }
+
+
+    private T copyOf(T t) {
+        T copy = metadata.newInstance();
+        for (FieldAccessor field : metadata.fields()) {
+            field.copy(t, copy);
+        }
+        return copy;
+    }
+
+    private Object getValue(Object entity, String fieldName) {
+        return EntityMetadata.of(entity.getClass()).field(fieldName).get(entity);
+    }
+
+    private void setValue(Object entity, String fieldName, Object fieldValue) {
+        EntityMetadata.of(entity.getClass()).field(fieldName).set(entity, fieldValue);
+    }
+
+    private String listToStr(List<T> tlist) {
+        StringBuilder sbf = new StringBuilder();
+        for (T t : tlist) {
+            sbf.append(entityToTxt(t)).append("\r\n");
+        }
         return sbf.toString();
     }
+
+    private byte[] encodeTable(List<T> tlist) {
+        if (format == TableFormat.BINARY) {
+            return BinaryTableCodec.table(tlist, metadata);
+        }
+        return listToStr(tlist).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] encodeRecord(T t) {
+        if (format == TableFormat.BINARY) {
+            return BinaryTableCodec.row(t, metadata);
+        }
+        return (entityToTxt(t) + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] encodeTombstone(long id) {
+        if (format == TableFormat.BINARY) {
+            return BinaryTableCodec.tombstone(id);
+        }
+        return (TOMBSTONE + id + ",\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // The text record of an entity of this table, whatever the table's own format
+    @SuppressWarnings("unchecked")
+    String encodeText(Object entity) {
+        return entityToTxt((T) entity);
+    }
+
+    private T txtToEntity(String txt) {
+        return RecordCodec.decode(txt, metadata);
+    }
+
+    private String entityToTxt(T t) {
+        if (entitySample == null) {
+            throw new IllegalStateException("entitySample is not initialized.");
+        }
+        return RecordCodec.encode(t, metadata);
+    }
 }
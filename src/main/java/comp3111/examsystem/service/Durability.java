@@ -0,0 +1,15 @@
+package comp3111.examsystem.service;
+
+/**
+ * How hard a table write works to survive a crash or power loss. Every rewrite goes to a
+ * temporary file that is renamed over the table, so a crash never leaves a half-written table;
+ * the level decides what is forced to the disk before and after that rename.
+ */
+public enum Durability {
+    // Leave flushing to the operating system; an OS crash may lose recent writes
+    NONE,
+    // Force the file contents to disk before the rename
+    FSYNC,
+    // Also force the directory after the rename, so the rename itself survives a power loss
+    FSYNC_DIR
+}
@@ -0,0 +1,157 @@
+package comp3111.examsystem.service;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field layout of an entity class, built once per class and shared by every {@link Database}.
+ * Fields are ordered the way records are written: the class's own fields first, then those of
+ * each superclass. A field hidden by a subclass field of the same name is left out, as are
+ * static and transient fields.
+ */
+public class EntityMetadata<T> {
+    private static final ClassValue<EntityMetadata<?>> REGISTRY = new ClassValue<>() {
+        @Override
+        protected EntityMetadata<?> computeValue(Class<?> type) {
+            return new EntityMetadata<>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final List<FieldAccessor> fields;
+    private final Map<String, FieldAccessor> byName;
+    private final List<String> indexedFields;
+    private final List<String> trigramIndexedFields;
+    private final List<String> searchableFields;
+    private final List<String> rangeIndexedFields;
+    private final MethodHandle constructor;
+
+    private EntityMetadata(Class<T> type) {
+        this.type = type;
+        List<FieldAccessor> fields = new ArrayList<>();
+        Map<String, FieldAccessor> byName = new HashMap<>();
+        List<String> indexedFields = new ArrayList<>();
+        List<String> trigramIndexedFields = new ArrayList<>();
+        List<String> searchableFields = new ArrayList<>();
+        List<String> rangeIndexedFields = new ArrayList<>();
+        for (Class<?> clazz = type; clazz != null && !clazz.equals(Object.class); clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())
+                        || field.getName().equals("dbutil")
+                        || byName.containsKey(field.getName())) {
+                    continue;
+                }
+                FieldAccessor accessor = new FieldAccessor(field);
+                fields.add(accessor);
+                byName.put(accessor.getName(), accessor);
+                if (accessor.isIndexed()) {
+                    indexedFields.add(accessor.getName());
+                }
+                if (accessor.isTrigramIndexed()) {
+                    trigramIndexedFields.add(accessor.getName());
+                }
+                if (accessor.isSearchable()) {
+                    searchableFields.add(accessor.getName());
+                }
+                if (accessor.isRangeIndexed()) {
+                    rangeIndexedFields.add(accessor.getName());
+                }
+            }
+        }
+        this.fields = Collections.unmodifiableList(fields);
+        this.byName = byName;
+        this.indexedFields = Collections.unmodifiableList(indexedFields);
+        this.trigramIndexedFields = Collections.unmodifiableList(trigramIndexedFields);
+        this.searchableFields = Collections.unmodifiableList(searchableFields);
+        this.rangeIndexedFields = Collections.unmodifiableList(rangeIndexedFields);
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.lookup().findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            // only needed when rows of this class are parsed; reported then
+            constructor = null;
+        }
+        this.constructor = constructor;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMetadata<T> of(Class<T> type) {
+        return (EntityMetadata<T>) REGISTRY.get(type);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    // All persistent fields in record order
+    public List<FieldAccessor> fields() {
+        return fields;
+    }
+
+    public FieldAccessor field(String name) {
+        FieldAccessor accessor = byName.get(name);
+        if (accessor == null) {
+            throw new RuntimeException(new NoSuchFieldException(name));
+        }
+        return accessor;
+    }
+
+    // The field whose name is record[start, end), found without allocating the name
+    FieldAccessor field(String record, int start, int end) {
+        int length = end - start;
+        for (FieldAccessor accessor : fields) {
+            String name = accessor.getName();
+            if (name.length() == length && record.regionMatches(start, name, 0, length)) {
+                return accessor;
+            }
+        }
+        throw new RuntimeException(new NoSuchFieldException(record.substring(start, end)));
+    }
+
+    public boolean hasField(String name) {
+        return byName.containsKey(name);
+    }
+
+    // Names of the fields declared with @Indexed
+    public List<String> indexedFields() {
+        return indexedFields;
+    }
+
+    // Names of the fields declared with @TrigramIndexed
+    public List<String> trigramIndexedFields() {
+        return trigramIndexedFields;
+    }
+
+    // Names of the fields declared with @Searchable
+    public List<String> searchableFields() {
+        return searchableFields;
+    }
+
+    // Names of the fields declared with @RangeIndexed
+    public List<String> rangeIndexedFields() {
+        return rangeIndexedFields;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T newInstance() {
+        if (constructor == null) {
+            throw new RuntimeException(new NoSuchMethodException(type.getName() + ".<init>()"));
+        }
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
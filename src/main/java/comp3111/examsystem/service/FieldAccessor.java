@@ -0,0 +1,182 @@
+package comp3111.examsystem.service;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Prebuilt getter and setter for one entity field, so rows can be read and written without
+ * looking the field up by reflection every time.
+ */
+public class FieldAccessor {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final String name;
+    private final Class<?> type;
+    private final boolean indexed;
+    private final boolean trigramIndexed;
+    private final boolean searchable;
+    private final boolean rangeIndexed;
+    private final ColumnType columnType;
+    private final String[] labels;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    // getter and setter of the field holding the parsed value of a typed text column, or null
+    private final MethodHandle valueGetter;
+    private final MethodHandle valueSetter;
+
+    FieldAccessor(Field field) {
+        this.name = field.getName();
+        this.type = field.getType();
+        this.indexed = field.isAnnotationPresent(Indexed.class);
+        this.trigramIndexed = field.isAnnotationPresent(TrigramIndexed.class);
+        this.searchable = field.isAnnotationPresent(Searchable.class);
+        this.rangeIndexed = field.isAnnotationPresent(RangeIndexed.class);
+        Column column = field.getAnnotation(Column.class);
+        this.columnType = column != null ? column.value() : isLong() ? ColumnType.LONG
+                : type == int.class || type == Integer.class ? ColumnType.INT : ColumnType.STRING;
+        this.labels = column != null ? column.labels() : new String[0];
+        try {
+            // setAccessible also lets the setter write final fields such as Manager.id
+            field.setAccessible(true);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            this.getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            this.setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            if (column != null && column.value() != ColumnType.STRING && type == String.class) {
+                Field value = valueField(field, column.value());
+                value.setAccessible(true);
+                this.valueGetter = lookup.unreflectGetter(value).asType(MethodType.methodType(long.class, Object.class));
+                this.valueSetter = lookup.unreflectSetter(value).asType(MethodType.methodType(void.class, Object.class,
+                        value.getType()));
+            } else {
+                this.valueGetter = null;
+                this.valueSetter = null;
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // The transient field beside a typed text column that holds its parsed value
+    private static Field valueField(Field field, ColumnType columnType) {
+        Class<?> expected = columnType == ColumnType.LONG ? long.class : int.class;
+        try {
+            Field value = field.getDeclaringClass().getDeclaredField(field.getName() + "Value");
+            if (value.getType() == expected && Modifier.isTransient(value.getModifiers())) {
+                return value;
+            }
+        } catch (NoSuchFieldException e) {
+            // reported below
+        }
+        throw new IllegalStateException(field.getDeclaringClass().getSimpleName() + "." + field.getName()
+                + " is a " + columnType + " column but has no transient " + expected + " " + field.getName() + "Value field");
+    }
+
+    // Whether the field holds a long, which is stored as a number rather than as text
+    boolean isLong() {
+        return type == long.class || type == Long.class;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public ColumnType getColumnType() {
+        return columnType;
+    }
+
+    // The labels of an ENUM column, in order
+    public String[] getLabels() {
+        return labels.clone();
+    }
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    public boolean isTrigramIndexed() {
+        return trigramIndexed;
+    }
+
+    public boolean isSearchable() {
+        return searchable;
+    }
+
+    public boolean isRangeIndexed() {
+        return rangeIndexed;
+    }
+
+    public Object get(Object entity) {
+        try {
+            return (Object) getter.invokeExact(entity);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // The value of a numeric or enum column as a number, without parsing its text again:
+    // the parsed value of a typed text column, or the value of an int or long field
+    public long getLong(Object entity) {
+        try {
+            if (valueGetter != null) {
+                return (long) valueGetter.invokeExact(entity);
+            }
+            Object value = columnType == ColumnType.STRING ? null : get(entity);
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+        throw new IllegalStateException(name + " is not a numeric column");
+    }
+
+    // Copy the field from one entity to another, with the parsed value of a typed text column
+    // as it is rather than parsed again from the text
+    public void copy(Object from, Object to) {
+        try {
+            setter.invokeExact(to, (Object) getter.invokeExact(from));
+            if (valueSetter != null) {
+                long value = (long) valueGetter.invokeExact(from);
+                if (columnType == ColumnType.LONG) {
+                    valueSetter.invokeExact(to, value);
+                } else {
+                    valueSetter.invokeExact(to, (int) value);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void set(Object entity, Object value) {
+        try {
+            setter.invokeExact(entity, value);
+            if (valueSetter != null) {
+                String text = value == null ? null : value.toString();
+                switch (columnType) {
+                    case INT -> valueSetter.invoke(entity, ColumnType.toInt(text));
+                    case LONG -> valueSetter.invoke(entity, ColumnType.toLong(text));
+                    default -> valueSetter.invoke(entity, ColumnType.toOrdinal(text, labels));
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -2,46 +2,139 @@ package comp3111.examsystem.service;
 
 
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 public class FileUtil {
 
-    public static boolean writeTxtFile(String content, File fileName) throws Exception {
-        boolean flag = false;
-        FileOutputStream fileOutputStream = null;
-        try {
-            fileOutputStream = new FileOutputStream(fileName);
-            fileOutputStream.write(content.getBytes("UTF-8"));
-            fileOutputStream.close();
-            flag = true;
-        } catch (Exception e) {
-            e.printStackTrace();
+    public static void writeTxtFile(String content, File fileName) throws IOException {
+        writeBinFile(content.getBytes(StandardCharsets.UTF_8), fileName);
+    }
+
+    public static void appendTxtFile(String content, File fileName) throws IOException {
+        appendTxtFile(content, fileName, Durability.NONE);
+    }
+
+    public static void appendTxtFile(String content, File fileName, Durability durability) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+            long length = file.length();
+            // make sure the appended text starts on its own line
+            if (length > 0) {
+                file.seek(length - 1);
+                if (file.read() != '\n') {
+                    content = "\r\n" + content;
+                }
+            }
+            file.seek(length);
+            file.write(content.getBytes(StandardCharsets.UTF_8));
+            if (durability != Durability.NONE) {
+                file.getChannel().force(true);
+            }
         }
-        return flag;
     }
 
-    public static List<String> readFileByLines(String fileName) {
-        File file = new File(fileName);
-        List<String> list = new ArrayList<String>();
-        BufferedReader reader = null;
+    public static void writeBinFile(byte[] content, File fileName) throws IOException {
+        writeBinFile(content, fileName, Durability.NONE);
+    }
+
+    public static void writeBinFile(byte[] content, File fileName, Durability durability) throws IOException {
+        writeAtomic(content, fileName.toPath(), durability);
+    }
+
+    // Replace a file's contents all at once: write a sibling temporary file and rename it over
+    // the target, so readers and crashes see either the old contents or the new, never a mix
+    public static void writeAtomic(byte[] content, Path target, Durability durability) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
         try {
-            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
-            String tempString = null;
-            while ((tempString = reader.readLine()) != null) {
-                list.add(tempString);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (durability != Durability.NONE) {
+                    channel.force(true);
+                }
             }
-            reader.close();
+            replace(temp, target, durability);
         } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e1) {
-                }
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+    }
+
+    // Force a finished temporary file to disk if the durability level asks for it
+    public static void sync(Path file, Durability durability) throws IOException {
+        if (durability == Durability.NONE) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    // Rename a finished temporary file over the target in one step
+    public static void replace(Path source, Path target, Durability durability) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (durability == Durability.FSYNC_DIR) {
+            syncDirectory(target.toAbsolutePath().getParent());
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // some platforms cannot open a directory; the rename is as durable as they allow
+        }
+    }
+
+    public static void appendBinFile(byte[] content, File fileName) throws IOException {
+        appendBinFile(content, fileName, Durability.NONE);
+    }
+
+    public static void appendBinFile(byte[] content, File fileName, Durability durability) throws IOException {
+        try (FileOutputStream fileOutputStream = new FileOutputStream(fileName, true)) {
+            fileOutputStream.write(content);
+            if (durability != Durability.NONE) {
+                fileOutputStream.getChannel().force(true);
             }
         }
-        return list;
+    }
+
+    public static byte[] readFileBytes(String fileName) throws IOException {
+        return Files.readAllBytes(Paths.get(fileName));
+    }
+
+    // Map a file read-only; the mapping stays valid after the channel is closed
+    public static MappedByteBuffer mapFile(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public static List<String> readFileByLines(String fileName) {
+        try {
+            return Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + fileName, e);
+        }
     }
 }
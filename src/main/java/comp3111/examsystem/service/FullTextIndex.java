@@ -0,0 +1,262 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.service.primitive.IntList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Inverted index over the words of one or more text fields, ranking rows with BM25. Words are
+ * the runs of letters and digits, lower-cased. Each word of a search also matches every indexed
+ * word it is a prefix of, so a half-typed word still finds all its rows; a longer completion of
+ * a word weighs less than the word itself. Removed rows are skipped by searches and dropped from
+ * the postings once they make up half of them.
+ */
+class FullTextIndex<T> {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_WEIGHT = 0.5;
+
+    private final List<Function<T, Object>> fields;
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<T, Integer> docIds = new IdentityHashMap<>();
+    private Object[] docs = new Object[16];
+    private int[] lengths = new int[16];
+    private int docCount;
+    private int live;
+    private long totalLength;
+
+    FullTextIndex(List<Function<T, Object>> fields) {
+        this.fields = fields;
+    }
+
+    void add(T row) {
+        List<String> words = words(row);
+        if (docCount == docs.length) {
+            docs = Arrays.copyOf(docs, docCount * 2);
+            lengths = Arrays.copyOf(lengths, docCount * 2);
+        }
+        int doc = docCount++;
+        docs[doc] = row;
+        lengths[doc] = words.size();
+        docIds.put(row, doc);
+        live++;
+        totalLength += words.size();
+        Map<String, Integer> frequencies = new TreeMap<>();
+        for (String word : words) {
+            frequencies.merge(word, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            terms.computeIfAbsent(term.getKey(), k -> new Postings()).add(doc, term.getValue());
+        }
+    }
+
+    // Forget a row; its fields must still hold the values it was added with
+    void remove(T row) {
+        Integer doc = docIds.remove(row);
+        if (doc == null) {
+            return;
+        }
+        docs[doc] = null;
+        live--;
+        totalLength -= lengths[doc];
+        for (String word : new HashSet<>(words(row))) {
+            Postings postings = terms.get(word);
+            if (postings != null && --postings.live == 0) {
+                terms.remove(word);
+            }
+        }
+        if (docCount - live > live && docCount > 1024) {
+            compact();
+        }
+    }
+
+    void clear() {
+        terms.clear();
+        docIds.clear();
+        Arrays.fill(docs, 0, docCount, null);
+        docCount = 0;
+        live = 0;
+        totalLength = 0;
+    }
+
+    // The k rows that best match the words of the text, best first; ties keep table order
+    List<T> search(String text, int k) {
+        return search(text, k, row -> true);
+    }
+
+    // The k rows accepted by the filter that best match the words of the text; rows the filter
+    // rejects are dropped before the best k are picked, so they take no places
+    @SuppressWarnings("unchecked")
+    List<T> search(String text, int k, Predicate<? super T> filter) {
+        List<String> words = tokenize(text);
+        if (words.isEmpty() || live == 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+        double averageLength = Math.max(1.0, (double) totalLength / live);
+        double[] scores = new double[docCount];
+        boolean[] touched = new boolean[docCount];
+        IntList hits = new IntList();
+        for (String word : words) {
+            SortedMap<String, Postings> matches = terms.subMap(word, word + Character.MAX_VALUE);
+            for (Map.Entry<String, Postings> term : matches.entrySet()) {
+                boolean exact = term.getKey().equals(word);
+                Postings postings = term.getValue();
+                double idf = Math.log(1 + (live - postings.live + 0.5) / (postings.live + 0.5));
+                double weight = exact ? idf : idf * PREFIX_WEIGHT;
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.docs[i];
+                    if (docs[doc] == null) {
+                        continue;
+                    }
+                    if (!touched[doc]) {
+                        touched[doc] = true;
+                        if (filter.test((T) docs[doc])) {
+                            hits.add(doc);
+                        }
+                    }
+                    int tf = postings.frequencies[i];
+                    double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                    scores[doc] += weight * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+        }
+        int[] best = best(hits, scores, k);
+        List<T> result = new ArrayList<>(best.length);
+        for (int doc : best) {
+            result.add((T) docs[doc]);
+        }
+        return result;
+    }
+
+    // The k hits with the highest scores, best first, the earlier row first among equal scores.
+    // They are kept in a min-heap of row numbers whose root is the weakest kept hit.
+    private static int[] best(IntList hits, double[] scores, int k) {
+        int[] heap = new int[Math.min(k, hits.size())];
+        int size = 0;
+        for (int i = 0; i < hits.size(); i++) {
+            int doc = hits.get(i);
+            if (size < heap.length) {
+                heap[size] = doc;
+                siftUp(heap, size++, scores);
+            } else if (weaker(heap[0], doc, scores)) {
+                heap[0] = doc;
+                siftDown(heap, size, scores);
+            }
+        }
+        // taking the weakest off the root fills the array from the back
+        while (size > 1) {
+            int weakest = heap[0];
+            heap[0] = heap[--size];
+            heap[size] = weakest;
+            siftDown(heap, size, scores);
+        }
+        return heap;
+    }
+
+    // Whether row a ranks below row b
+    private static boolean weaker(int a, int b, double[] scores) {
+        return scores[a] != scores[b] ? scores[a] < scores[b] : a > b;
+    }
+
+    private static void siftUp(int[] heap, int i, double[] scores) {
+        int doc = heap[i];
+        while (i > 0 && weaker(doc, heap[(i - 1) / 2], scores)) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = doc;
+    }
+
+    private static void siftDown(int[] heap, int size, double[] scores) {
+        int doc = heap[0];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && weaker(heap[child + 1], heap[child], scores)) {
+                child++;
+            }
+            if (!weaker(heap[child], doc, scores)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = doc;
+    }
+
+    int size() {
+        return live;
+    }
+
+    private List<String> words(T row) {
+        List<String> words = new ArrayList<>();
+        for (Function<T, Object> field : fields) {
+            Object value = field.apply(row);
+            if (value != null) {
+                words.addAll(tokenize(value.toString()));
+            }
+        }
+        return words;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    // Renumber the live rows and drop the postings of removed ones
+    @SuppressWarnings("unchecked")
+    private void compact() {
+        List<T> rows = new ArrayList<>(live);
+        for (int i = 0; i < docCount; i++) {
+            if (docs[i] != null) {
+                rows.add((T) docs[i]);
+            }
+        }
+        clear();
+        for (T row : rows) {
+            add(row);
+        }
+    }
+
+    /**
+     * The rows holding one word, as parallel arrays of row number and word count in that row.
+     */
+    private static final class Postings {
+        int[] docs = new int[2];
+        int[] frequencies = new int[2];
+        int size;
+        // postings of rows not removed since
+        int live;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+    }
+}
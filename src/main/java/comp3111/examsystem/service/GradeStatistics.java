@@ -0,0 +1,412 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Question;
+import comp3111.examsystem.model.Quiz;
+import comp3111.examsystem.service.primitive.LongIntMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Materialised view over the quiz and question tables of one data directory: the full score of
+ * each quiz. It follows every change made through this process as it happens, so listing grades
+ * costs one lookup per quiz instead of a pass over its questions. The view is saved to a file
+ * beside the tables together with the modification time and size each table had when they last
+ * agreed; if a table file no longer matches, it was changed in a way the view did not see, and it
+ * is rebuilt from the tables on the next read. Changes are saved once every {@link #SAVE_EVERY}
+ * table writes and when {@link #flush()} is called, rather than after every write, so at most
+ * that many writes are lost to a crash before the view is rebuilt on the next start.
+ * <pre>
+ * GradeStatistics statistics = GradeStatistics.forDirectory(directory);
+ * int fullScore = statistics.fullScore(quiz.getId());
+ * </pre>
+ */
+public class GradeStatistics {
+    static final String FILE = "gradestatistics.txt";
+    // table writes the view follows before it is saved again
+    static final int SAVE_EVERY = 50;
+
+    private static final ConcurrentMap<String, GradeStatistics> VIEWS = new ConcurrentHashMap<>();
+    private static final int QUIZ = 0;
+    private static final int QUESTION = 1;
+
+    private final String directory;
+    private final Path viewFile;
+    // table files in the order QUIZ, QUESTION
+    private final File[] files;
+    private final List<TableListener<?>> listeners = new ArrayList<>();
+    // the state below is guarded by this
+    private final long[] lastModified = new long[2];
+    private final long[] length = new long[2];
+    // whether the view matches the tables as of the tokens above
+    private boolean valid;
+    private boolean loaded;
+    // table writes followed since the view was last saved
+    private int unsaved;
+    // row changes reported so far, so a rebuild can tell whether the tables moved while it read them
+    private long changes;
+    // question id -> score; a deleted question scores 0 since entries cannot be removed
+    private LongIntMap questionScores = new LongIntMap(0);
+    // quiz id -> questions and full score
+    private Map<String, QuizEntry> quizzes = new HashMap<>();
+    // question id -> the quizzes holding it, once for each time it appears in a quiz
+    private Map<Long, List<QuizEntry>> questionQuizzes = new HashMap<>();
+
+    private GradeStatistics(String directory) {
+        this.directory = directory;
+        viewFile = Paths.get(directory, FILE);
+        files = new File[]{
+                new File(new Database<>(Quiz.class, directory).jsonFile),
+                new File(new Database<>(Question.class, directory).jsonFile)};
+        listeners.add(new Listener<Quiz>(QUIZ) {
+            @Override
+            void change(Quiz quiz, int sign) {
+                quizChanged(quiz, sign);
+            }
+        });
+        listeners.add(new Listener<Question>(QUESTION) {
+            @Override
+            void change(Question question, int sign) {
+                questionChanged(question, sign);
+            }
+        });
+        for (int table = 0; table < files.length; table++) {
+            TableCache.addListener(files[table], listeners.get(table));
+        }
+    }
+
+    // The view of the default data directory
+    public static GradeStatistics open() {
+        return forDirectory(Paths.get("src", "main", "resources", "database").toString());
+    }
+
+    // The view shared by everything in this process that uses the directory
+    public static GradeStatistics forDirectory(String directory) {
+        String path = Paths.get(directory).toAbsolutePath().toString();
+        return VIEWS.computeIfAbsent(path, p -> new GradeStatistics(directory));
+    }
+
+    // Bring the view up to date now, so it follows later changes instead of waiting for a read
+    public void refresh() {
+        ensureCurrent();
+    }
+
+    // Save the view if it changed since it was last saved; throws UncheckedIOException if it cannot be written
+    public synchronized void flush() {
+        if (valid && unsaved > 0) {
+            save();
+        }
+    }
+
+    // Stop following every directory, so the next use reads the saved view again
+    static void clearAll() {
+        for (GradeStatistics views : VIEWS.values()) {
+            for (int table = 0; table < views.files.length; table++) {
+                TableCache.removeListener(views.files[table], views.listeners.get(table));
+            }
+        }
+        VIEWS.clear();
+    }
+
+    // The total score of the quiz's questions, or -1 if there is no such quiz
+    public int fullScore(long quizId) {
+        ensureCurrent();
+        synchronized (this) {
+            QuizEntry quiz = quizzes.get(Long.toString(quizId));
+            return quiz == null ? -1 : quiz.fullScore;
+        }
+    }
+
+    // Load the saved view on first use, and rebuild it if a table changed behind its back.
+    // Tables are read without holding this, since a writer may be reporting to us under a table lock.
+    private void ensureCurrent() {
+        while (true) {
+            long seen;
+            synchronized (this) {
+                if (valid && matchesFiles()) {
+                    return;
+                }
+                if (!loaded) {
+                    loaded = true;
+                    if (readSaved() && matchesFiles()) {
+                        valid = true;
+                        return;
+                    }
+                }
+                seen = changes;
+            }
+            GradeStatistics rebuilt = rebuild();
+            synchronized (this) {
+                if (changes != seen) {
+                    // a change was made while the tables were read, so they may be read at different points
+                    continue;
+                }
+                System.arraycopy(rebuilt.lastModified, 0, lastModified, 0, lastModified.length);
+                System.arraycopy(rebuilt.length, 0, length, 0, length.length);
+                questionScores = rebuilt.questionScores;
+                quizzes = rebuilt.quizzes;
+                questionQuizzes = rebuilt.questionQuizzes;
+                valid = true;
+                save();
+                return;
+            }
+        }
+    }
+
+    // Compute the view from scratch, recording the table tokens before the tables are read
+    private GradeStatistics rebuild() {
+        GradeStatistics rebuilt = new GradeStatistics(directory, files);
+        for (int table = 0; table < files.length; table++) {
+            rebuilt.lastModified[table] = files[table].lastModified();
+            rebuilt.length[table] = files[table].length();
+        }
+        for (Question question : new Database<>(Question.class, directory).getAll()) {
+            rebuilt.questionChanged(question, 1);
+        }
+        for (Quiz quiz : new Database<>(Quiz.class, directory).getAll()) {
+            rebuilt.quizChanged(quiz, 1);
+        }
+        return rebuilt;
+    }
+
+    // A detached copy that collects the view while the tables are read
+    private GradeStatistics(String directory, File[] files) {
+        this.directory = directory;
+        this.viewFile = null;
+        this.files = files;
+    }
+
+    private boolean matchesFiles() {
+        for (int table = 0; table < files.length; table++) {
+            if (files[table].lastModified() != lastModified[table] || files[table].length() != length[table]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized void quizChanged(Quiz quiz, int sign) {
+        String id = Long.toString(quiz.id);
+        if (sign < 0) {
+            QuizEntry entry = quizzes.remove(id);
+            if (entry == null) {
+                return;
+            }
+            for (long question : entry.questions) {
+                List<QuizEntry> holders = questionQuizzes.get(question);
+                holders.remove(entry);
+                if (holders.isEmpty()) {
+                    questionQuizzes.remove(question);
+                }
+            }
+            return;
+        }
+        QuizEntry entry = new QuizEntry(parseQuestions(quiz.questionIDs));
+        if (quizzes.putIfAbsent(id, entry) != null) {
+            return;
+        }
+        for (long question : entry.questions) {
+            entry.fullScore += questionScores.get(question);
+            questionQuizzes.computeIfAbsent(question, q -> new ArrayList<>(1)).add(entry);
+        }
+    }
+
+    private synchronized void questionChanged(Question question, int sign) {
+        // a score that is not a number adds nothing to the full score
+        int score = sign > 0 && question.getQuestionScoreValue() != ColumnType.NO_INT ? question.getQuestionScoreValue() : 0;
+        int delta = score - questionScores.get(question.id);
+        questionScores.put(question.id, score);
+        List<QuizEntry> holders = questionQuizzes.get(question.id);
+        if (holders != null) {
+            for (QuizEntry quiz : holders) {
+                quiz.fullScore += delta;
+            }
+        }
+    }
+
+    private static long[] parseQuestions(String questionIDs) {
+        List<Long> ids = new ArrayList<>();
+        if (questionIDs != null) {
+            for (String text : questionIDs.split("\\|")) {
+                Long id = Query.parseNumber(text);
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+        }
+        long[] questions = new long[ids.size()];
+        for (int i = 0; i < questions.length; i++) {
+            questions[i] = ids.get(i);
+        }
+        return questions;
+    }
+
+    private synchronized void written(int table, long lastModifiedBefore, long lengthBefore,
+                                      long lastModified, long length) {
+        if (!valid || this.lastModified[table] != lastModifiedBefore || this.length[table] != lengthBefore) {
+            // the rows were changed from a copy of the table the view never saw
+            valid = false;
+            return;
+        }
+        this.lastModified[table] = lastModified;
+        this.length[table] = length;
+        if (++unsaved >= SAVE_EVERY) {
+            try {
+                save();
+            } catch (UncheckedIOException e) {
+                // the table write itself succeeded; the view stays unsaved, so the next save or
+                // flush() tries again and flush() reports the failure
+            }
+        }
+    }
+
+    private synchronized void invalidated() {
+        valid = false;
+    }
+
+    // Write the view beside the tables. They can always be rebuilt, so the file is not forced to disk.
+    private void save() {
+        StringBuilder sb = new StringBuilder();
+        String[] names = {"quiz", "question"};
+        for (int table = 0; table < files.length; table++) {
+            sb.append("table:").append(names[table]).append(",modified:").append(lastModified[table])
+                    .append(",length:").append(length[table]).append(",\r\n");
+        }
+        questionScores.forEach((question, score) -> {
+            if (score != 0) {
+                sb.append("question:").append(question).append(",score:").append(score).append(",\r\n");
+            }
+        });
+        for (Map.Entry<String, QuizEntry> quiz : quizzes.entrySet()) {
+            sb.append("quiz:");
+            RecordCodec.escape(sb, quiz.getKey());
+            sb.append(",questions:");
+            long[] questions = quiz.getValue().questions;
+            for (int i = 0; i < questions.length; i++) {
+                sb.append(i == 0 ? "" : "|").append(questions[i]);
+            }
+            sb.append(",\r\n");
+        }
+        try {
+            FileUtil.writeAtomic(sb.toString().getBytes(StandardCharsets.UTF_8), viewFile, Durability.NONE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + viewFile, e);
+        }
+        unsaved = 0;
+    }
+
+    // Read the saved view and its table tokens; false if there are none or they are not in the
+    // format save() writes, in which case the view is rebuilt from the tables
+    private boolean readSaved() {
+        if (!Files.exists(viewFile)) {
+            return false;
+        }
+        try {
+            Map<String, Integer> tables = Map.of("quiz", QUIZ, "question", QUESTION);
+            Map<String, String> savedQuizzes = new LinkedHashMap<>();
+            for (String line : Files.readAllLines(viewFile, StandardCharsets.UTF_8)) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                List<String> values = new ArrayList<>();
+                String[] kind = new String[1];
+                RecordCodec.scan(line, (record, keyStart, keyEnd, valueStart, valueEnd, escaped) -> {
+                    if (kind[0] == null) {
+                        kind[0] = record.substring(keyStart, keyEnd);
+                    }
+                    values.add(RecordCodec.unescape(record, valueStart, valueEnd));
+                });
+                switch (kind[0]) {
+                    case "table" -> {
+                        int table = tables.get(values.get(0));
+                        lastModified[table] = Long.parseLong(values.get(1));
+                        length[table] = Long.parseLong(values.get(2));
+                    }
+                    case "question" -> questionScores.put(Long.parseLong(values.get(0)), Integer.parseInt(values.get(1)));
+                    case "quiz" -> savedQuizzes.put(values.get(0), values.get(1));
+                    default -> throw new IllegalStateException("Unknown view record " + kind[0]);
+                }
+            }
+            // quizzes go in last, so their full scores come from the question scores read above
+            for (Map.Entry<String, String> quiz : savedQuizzes.entrySet()) {
+                Quiz row = new Quiz(null, "0", null, null, Long.parseLong(quiz.getKey()), quiz.getValue());
+                quizChanged(row, 1);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + viewFile, e);
+        } catch (RuntimeException e) {
+            questionScores = new LongIntMap(0);
+            quizzes = new HashMap<>();
+            questionQuizzes = new HashMap<>();
+            return false;
+        }
+    }
+
+    /**
+     * Relays the changes to one table into the view.
+     */
+    private abstract class Listener<T> implements TableListener<T> {
+        private final int table;
+
+        Listener(int table) {
+            this.table = table;
+        }
+
+        abstract void change(T row, int sign);
+
+        @Override
+        public void rowAdded(T row) {
+            relay(row, 1);
+        }
+
+        @Override
+        public void rowRemoved(T row) {
+            relay(row, -1);
+        }
+
+        // A view that is out of date is rebuilt before it is read, so it skips the change
+        private void relay(T row, int sign) {
+            synchronized (GradeStatistics.this) {
+                changes++;
+                if (valid) {
+                    change(row, sign);
+                }
+            }
+        }
+
+        @Override
+        public void written(long lastModifiedBefore, long lengthBefore, long lastModified, long length) {
+            GradeStatistics.this.written(table, lastModifiedBefore, lengthBefore, lastModified, length);
+        }
+
+        @Override
+        public void invalidated() {
+            GradeStatistics.this.invalidated();
+        }
+    }
+
+    /**
+     * The questions and full score of one quiz.
+     */
+    private static final class QuizEntry {
+        final long[] questions;
+        int fullScore;
+
+        QuizEntry(long[] questions) {
+            this.questions = questions;
+        }
+    }
+}
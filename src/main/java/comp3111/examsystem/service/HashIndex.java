@@ -0,0 +1,70 @@
+package comp3111.examsystem.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Secondary hash index from the string form of one field to the rows holding that value.
+ * Each bucket is kept in table order, so a lookup returns rows in the same order as a scan.
+ */
+class HashIndex<T> {
+    private final Function<T, Object> valueOf;
+    private final ToLongFunction<T> positionOf;
+    private final Map<String, List<T>> buckets = new HashMap<>();
+
+    HashIndex(Function<T, Object> valueOf, ToLongFunction<T> positionOf) {
+        this.valueOf = valueOf;
+        this.positionOf = positionOf;
+    }
+
+    // Rows whose field equals the value, in table order
+    List<T> get(String value) {
+        List<T> bucket = buckets.get(value);
+        return bucket == null ? Collections.emptyList() : bucket;
+    }
+
+    void add(T row) {
+        String key = keyOf(row);
+        if (key == null) {
+            return;
+        }
+        List<T> bucket = buckets.computeIfAbsent(key, k -> new ArrayList<>(1));
+        long position = positionOf.applyAsLong(row);
+        int i = bucket.size();
+        while (i > 0 && positionOf.applyAsLong(bucket.get(i - 1)) > position) {
+            i--;
+        }
+        bucket.add(i, row);
+    }
+
+    void remove(T row) {
+        String key = keyOf(row);
+        List<T> bucket = key == null ? null : buckets.get(key);
+        if (bucket == null) {
+            return;
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == row) {
+                bucket.remove(i);
+                break;
+            }
+        }
+        if (bucket.isEmpty()) {
+            buckets.remove(key);
+        }
+    }
+
+    void clear() {
+        buckets.clear();
+    }
+
+    private String keyOf(T row) {
+        Object value = valueOf.apply(row);
+        return value == null ? null : value.toString();
+    }
+}
@@ -0,0 +1,15 @@
+package comp3111.examsystem.service;
+
+/**
+ * Source of primary keys for new rows. {@link Database} asks it for an id on every add and
+ * tells it the largest id found whenever it reads a table file, so a generator can avoid
+ * reissuing ids that were handed out before a restart or by another process.
+ */
+public interface IdGenerator {
+    // A new id, greater than every id this generator issued or observed before
+    long nextId();
+
+    // An id already stored in a table
+    default void observe(long id) {
+    }
+}
@@ -0,0 +1,16 @@
+package comp3111.examsystem.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an entity field that {@link Database} should keep a secondary hash index on.
+ * While tables are resident, {@code queryByField} on an indexed field is answered from the
+ * index instead of scanning the whole table.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Indexed {
+}
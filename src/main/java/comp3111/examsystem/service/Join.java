@@ -0,0 +1,146 @@
+package comp3111.examsystem.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inner joins between rows of two tables, possibly of different entity types, on a named field
+ * of each. Keys are compared by their string form, so a text field such as
+ * {@code Grade.questionId} joins a numeric key such as {@code Quiz.id}. Each key is read once
+ * per row through the entity's field accessors. Rows without a value never match.
+ * <pre>
+ * List&lt;Join.Row&lt;Grade, Quiz&gt;&gt; rows = Join.hashJoin(grades, "questionId", quizzes, "id");
+ * </pre>
+ */
+public class Join {
+    private Join() {
+    }
+
+    // Build a hash table on the right rows and probe it with the left ones in O(n + m).
+    // Results follow the order of the left rows, then of the right rows for the same key.
+    public static <L, R> List<Row<L, R>> hashJoin(List<L> left, String leftField, List<R> right, String rightField) {
+        FieldAccessor rightKey = accessor(right, rightField);
+        Map<String, List<R>> buckets = new HashMap<>();
+        for (R r : right) {
+            String key = key(rightKey, r);
+            if (key != null) {
+                buckets.computeIfAbsent(key, k -> new ArrayList<>(1)).add(r);
+            }
+        }
+        FieldAccessor leftKey = accessor(left, leftField);
+        List<Row<L, R>> rows = new ArrayList<>();
+        for (L l : left) {
+            String key = key(leftKey, l);
+            List<R> matches = key == null ? null : buckets.get(key);
+            if (matches != null) {
+                for (R r : matches) {
+                    rows.add(new Row<>(l, r));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Merge two lists already sorted on their join fields, in the order Query.orderBy sorts,
+    // without building a hash table. Results come in key order; keys found out of order are rejected.
+    public static <L, R> List<Row<L, R>> mergeJoin(List<L> left, String leftField, List<R> right, String rightField) {
+        FieldAccessor leftKey = accessor(left, leftField);
+        FieldAccessor rightKey = accessor(right, rightField);
+        List<Row<L, R>> rows = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        String previousLeft = null;
+        String previousRight = null;
+        while (i < left.size() && j < right.size()) {
+            String l = key(leftKey, left.get(i));
+            String r = key(rightKey, right.get(j));
+            checkSorted(previousLeft, l, leftField);
+            checkSorted(previousRight, r, rightField);
+            previousLeft = l;
+            previousRight = r;
+            if (l == null || r == null) {
+                // missing values sort last, so nothing after this can match
+                break;
+            }
+            int order = Query.compareValues(l, r);
+            if (order < 0) {
+                i++;
+            } else if (order > 0) {
+                j++;
+            } else {
+                // the runs of keys that sort alike on each side; within them keys match only when the
+                // same text, as in hashJoin, so 7 and 07 sort together but are not the same key
+                int leftEnd = i;
+                while (leftEnd < left.size() && sortsAlike(l, key(leftKey, left.get(leftEnd)))) {
+                    leftEnd++;
+                }
+                int rightEnd = j;
+                while (rightEnd < right.size() && sortsAlike(r, key(rightKey, right.get(rightEnd)))) {
+                    rightEnd++;
+                }
+                for (int a = i; a < leftEnd; a++) {
+                    String leftValue = key(leftKey, left.get(a));
+                    for (int b = j; b < rightEnd; b++) {
+                        if (leftValue.equals(key(rightKey, right.get(b)))) {
+                            rows.add(new Row<>(left.get(a), right.get(b)));
+                        }
+                    }
+                }
+                previousLeft = key(leftKey, left.get(leftEnd - 1));
+                previousRight = key(rightKey, right.get(rightEnd - 1));
+                i = leftEnd;
+                j = rightEnd;
+            }
+        }
+        return rows;
+    }
+
+    private static boolean sortsAlike(String key, String other) {
+        return other != null && Query.compareValues(key, other) == 0;
+    }
+
+    private static void checkSorted(String previous, String current, String field) {
+        if (previous != null && Query.compareValues(previous, current) > 0) {
+            throw new IllegalArgumentException("Rows are not sorted on " + field);
+        }
+    }
+
+    private static FieldAccessor accessor(List<?> rows, String field) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        return EntityMetadata.of(rows.get(0).getClass()).field(field);
+    }
+
+    private static String key(FieldAccessor field, Object row) {
+        Object value = field.get(row);
+        if (value == null) {
+            return null;
+        }
+        String key = value.toString();
+        return key.isEmpty() ? null : key;
+    }
+
+    /**
+     * A left row paired with a right row whose key matched.
+     */
+    public static final class Row<L, R> {
+        private final L left;
+        private final R right;
+
+        Row(L left, R right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        public L getLeft() {
+            return left;
+        }
+
+        public R getRight() {
+            return right;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package comp3111.examsystem.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A filter over the rows of one table, built from conditions on named fields and run with
+ * {@link Database#query(Query)}. Conditions combine left to right: {@link #and} and {@link #or}
+ * join the query built so far with one more condition, or with another query as a group.
+ * Field names are checked when the condition is added, and the whole query compiles once to a
+ * {@link Predicate} that can be reused on every scan.
+ * <pre>
+ * Query&lt;Question&gt; query = Query.from(Question.class)
+ *         .where("questionDescription", Query.contains("Java"))
+ *         .and("questionType", Query.eq("Single"))
+ *         .orderBy("questionScore", false)
+ *         .limit(20);
+ * </pre>
+ * When a table has an index on a field compared with {@link #eq} at the top level of the query,
+ * a trigram index on one searched with {@link #contains}, or a sorted index on one bounded with
+ * {@link #range}, the database answers from the index and tests only the rows it returns.
+ */
+public class Query<T> {
+    private final EntityMetadata<T> metadata;
+    private Node node;
+    private int limit = -1;
+    private final List<FieldAccessor> orderFields = new ArrayList<>();
+    private final List<Boolean> ascending = new ArrayList<>();
+    private Predicate<T> predicate;
+
+    private Query(Class<T> entity) {
+        metadata = EntityMetadata.of(entity);
+    }
+
+    // A query on the entity's table that matches every row until conditions are added
+    public static <T> Query<T> from(Class<T> entity) {
+        return new Query<>(entity);
+    }
+
+    // The field equals the value, compared by string form
+    public static Condition eq(Object value) {
+        return new Condition(Objects.requireNonNull(value).toString(), null, null, null);
+    }
+
+    // The field contains the text
+    public static Condition contains(String text) {
+        return new Condition(null, Objects.requireNonNull(text), null, null);
+    }
+
+    // The field lies between the bounds, both inclusive; a null bound is open. Values that are
+    // both numbers compare as numbers, anything else as text.
+    public static Condition range(Object from, Object to) {
+        return new Condition(null, null, from == null ? null : from.toString(), to == null ? null : to.toString());
+    }
+
+    public Query<T> where(String field, Condition condition) {
+        return and(field, condition);
+    }
+
+    public Query<T> and(String field, Condition condition) {
+        return combine(true, new Leaf(metadata.field(field), condition));
+    }
+
+    public Query<T> or(String field, Condition condition) {
+        return combine(false, new Leaf(metadata.field(field), condition));
+    }
+
+    // Both this query and the other, which keeps its conditions together as a group
+    public Query<T> and(Query<T> other) {
+        return other.node == null ? this : combine(true, other.node);
+    }
+
+    public Query<T> or(Query<T> other) {
+        return other.node == null ? this : combine(false, other.node);
+    }
+
+    // Return at most this many rows
+    public Query<T> limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public Query<T> orderBy(String field) {
+        return orderBy(field, true);
+    }
+
+    // Sort the results by the field; later calls break ties of earlier ones
+    public Query<T> orderBy(String field, boolean ascending) {
+        orderFields.add(metadata.field(field));
+        this.ascending.add(ascending);
+        return this;
+    }
+
+    private Query<T> combine(boolean and, Node other) {
+        node = node == null ? other : new Junction(and, node, other);
+        predicate = null;
+        return this;
+    }
+
+    // The conditions as one predicate, compiled on first use
+    public Predicate<T> toPredicate() {
+        if (predicate == null) {
+            Node compiled = node;
+            predicate = compiled == null ? row -> true : compiled::test;
+        }
+        return predicate;
+    }
+
+    // Run the query over rows already in memory
+    public List<T> apply(Collection<T> rows) {
+        Predicate<T> test = toPredicate();
+        List<T> result = new ArrayList<>();
+        for (T row : rows) {
+            if (test.test(row)) {
+                result.add(row);
+                if (!isOrdered() && result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return finish(result);
+    }
+
+    // Sort and cut matching rows down to the limit
+    List<T> finish(List<T> rows) {
+        if (isOrdered()) {
+            rows.sort(comparator());
+        }
+        return limit >= 0 && rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
+    }
+
+    boolean isOrdered() {
+        return !orderFields.isEmpty();
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    EntityMetadata<T> metadata() {
+        return metadata;
+    }
+
+    // Field -> value of the equality conditions every match must satisfy, which an index can answer
+    List<String[]> requiredEqualities() {
+        List<String[]> equalities = new ArrayList<>();
+        collectRequired(node, c -> c.equal == null ? null : new String[]{c.equal}, equalities);
+        return equalities;
+    }
+
+    // Field -> text of the contains conditions every match must satisfy
+    List<String[]> requiredContains() {
+        List<String[]> parts = new ArrayList<>();
+        collectRequired(node, c -> c.part == null ? null : new String[]{c.part}, parts);
+        return parts;
+    }
+
+    // Field -> lower and upper bound, either possibly null, of the range conditions every match must satisfy
+    List<String[]> requiredRanges() {
+        List<String[]> ranges = new ArrayList<>();
+        collectRequired(node, c -> c.equal == null && c.part == null ? new String[]{c.from, c.to} : null, ranges);
+        return ranges;
+    }
+
+    private static void collectRequired(Node node, Function<Condition, String[]> values, List<String[]> required) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            String[] value = values.apply(leaf.condition);
+            if (value != null) {
+                String[] entry = new String[value.length + 1];
+                entry[0] = leaf.field.getName();
+                System.arraycopy(value, 0, entry, 1, value.length);
+                required.add(entry);
+            }
+        } else if (node instanceof Junction && ((Junction) node).and) {
+            collectRequired(((Junction) node).left, values, required);
+            collectRequired(((Junction) node).right, values, required);
+        }
+    }
+
+    private Comparator<T> comparator() {
+        Comparator<T> comparator = null;
+        for (int i = 0; i < orderFields.size(); i++) {
+            FieldAccessor field = orderFields.get(i);
+            Comparator<T> next = (a, b) -> compareValues(text(field.get(a)), text(field.get(b)));
+            if (!ascending.get(i)) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator == null ? (a, b) -> 0 : comparator;
+    }
+
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    // Numbers by value before other text in natural order, missing values last
+    static int compareValues(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        Long x = parseNumber(a);
+        Long y = parseNumber(b);
+        if (x != null && y != null) {
+            return Long.compare(x, y);
+        }
+        if (x != null || y != null) {
+            return x != null ? -1 : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    // The text as a number if it is one, else null
+    static Long parseNumber(String text) {
+        if (text.isEmpty() || text.length() > 19) {
+            return null;
+        }
+        for (int i = text.charAt(0) == '-' ? 1 : 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return null;
+            }
+        }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * What a field must hold for a row to match. Made with {@link #eq}, {@link #contains}
+     * or {@link #range}.
+     */
+    public static final class Condition {
+        final String equal;
+        final String part;
+        final String from;
+        final String to;
+
+        private Condition(String equal, String part, String from, String to) {
+            this.equal = equal;
+            this.part = part;
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean test(Object value) {
+            if (value == null) {
+                return false;
+            }
+            String text = value.toString();
+            if (equal != null) {
+                return equal.equals(text);
+            }
+            if (part != null) {
+                return text.contains(part);
+            }
+            return (from == null || compareValues(text, from) >= 0) && (to == null || compareValues(text, to) <= 0);
+        }
+    }
+
+    private interface Node {
+        boolean test(Object row);
+    }
+
+    private static final class Leaf implements Node {
+        final FieldAccessor field;
+        final Condition condition;
+
+        Leaf(FieldAccessor field, Condition condition) {
+            this.field = field;
+            this.condition = condition;
+        }
+
+        @Override
+        public boolean test(Object row) {
+            return condition.test(field.get(row));
+        }
+    }
+
+    private static final class Junction implements Node {
+        final boolean and;
+        final Node left;
+        final Node right;
+
+        Junction(boolean and, Node left, Node right) {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(Object row) {
+            return and ? left.test(row) && right.test(row) : left.test(row) || right.test(row);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package comp3111.examsystem.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sorted secondary index on one field, in the order {@link Query#range} compares values:
+ * numbers by value, then any other text in natural order. Numbers are parsed once, when a row
+ * is added, and kept in their own tree so a numeric range never compares text. Each bucket is
+ * kept in table order, so rows with equal values come back in the same order as a scan.
+ */
+class RangeIndex<T> {
+    private final Function<T, Object> valueOf;
+    private final ToLongFunction<T> positionOf;
+    private final TreeMap<Long, List<T>> numbers = new TreeMap<>();
+    private final TreeMap<String, List<T>> texts = new TreeMap<>();
+    private int size;
+
+    RangeIndex(Function<T, Object> valueOf, ToLongFunction<T> positionOf) {
+        this.valueOf = valueOf;
+        this.positionOf = positionOf;
+    }
+
+    // Rows whose value lies between the bounds, both inclusive, sorted by value; a null bound is open
+    List<T> range(String from, String to) {
+        Long low = from == null ? null : Query.parseNumber(from);
+        Long high = to == null ? null : Query.parseNumber(to);
+        List<T> rows = new ArrayList<>();
+        if (from != null && to != null && Query.compareValues(from, to) > 0) {
+            return rows;
+        }
+        // a text lower bound sorts after every number, and a numeric upper bound before every text
+        if (from == null || low != null) {
+            NavigableMap<Long, List<T>> part = numbers;
+            if (low != null) {
+                part = part.tailMap(low, true);
+            }
+            if (high != null) {
+                part = part.headMap(high, true);
+            }
+            addAll(rows, part);
+        }
+        if (to == null || high == null) {
+            NavigableMap<String, List<T>> part = texts;
+            if (from != null && low == null) {
+                part = part.tailMap(from, true);
+            }
+            if (to != null) {
+                part = part.headMap(to, true);
+            }
+            addAll(rows, part);
+        }
+        return rows;
+    }
+
+    // How many rows hold a value
+    int size() {
+        return size;
+    }
+
+    void add(T row) {
+        List<T> bucket = bucketOf(row, true);
+        if (bucket == null) {
+            return;
+        }
+        long position = positionOf.applyAsLong(row);
+        int i = bucket.size();
+        while (i > 0 && positionOf.applyAsLong(bucket.get(i - 1)) > position) {
+            i--;
+        }
+        bucket.add(i, row);
+        size++;
+    }
+
+    void remove(T row) {
+        List<T> bucket = bucketOf(row, false);
+        if (bucket == null) {
+            return;
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == row) {
+                bucket.remove(i);
+                size--;
+                break;
+            }
+        }
+        if (bucket.isEmpty()) {
+            String text = valueOf.apply(row).toString();
+            Long number = Query.parseNumber(text);
+            if (number != null) {
+                numbers.remove(number);
+            } else {
+                texts.remove(text);
+            }
+        }
+    }
+
+    void clear() {
+        numbers.clear();
+        texts.clear();
+        size = 0;
+    }
+
+    private List<T> bucketOf(T row, boolean create) {
+        Object value = valueOf.apply(row);
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString();
+        Long number = Query.parseNumber(text);
+        if (number != null) {
+            return create ? numbers.computeIfAbsent(number, k -> new ArrayList<>(1)) : numbers.get(number);
+        }
+        return create ? texts.computeIfAbsent(text, k -> new ArrayList<>(1)) : texts.get(text);
+    }
+
+    private <K> void addAll(List<T> rows, Map<K, List<T>> buckets) {
+        for (List<T> bucket : buckets.values()) {
+            rows.addAll(bucket);
+        }
+    }
+}
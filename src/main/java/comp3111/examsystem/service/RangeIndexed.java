@@ -0,0 +1,16 @@
+package comp3111.examsystem.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an entity field that {@link Database} should keep a sorted index on. While tables are
+ * resident, {@code range} and {@link Query#range} conditions on the field walk the index
+ * instead of scanning the whole table. Values that are numbers sort by value, before any text.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface RangeIndexed {
+}
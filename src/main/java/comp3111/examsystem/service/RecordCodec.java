@@ -0,0 +1,322 @@
+package comp3111.examsystem.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads and writes the {@code name:value,} record format of the table files.
+ * Inside a value a backslash escapes the next character, so {@code \,} {@code \:} and
+ * {@code \\} stand for the literal characters and {@code \n} {@code \r} for line breaks;
+ * this keeps every record on one line and lets values contain the separators.
+ * Records written before escaping existed contain no backslashes and read back unchanged.
+ */
+final class RecordCodec {
+    private RecordCodec() {
+    }
+
+    /**
+     * Receives the fields of a record as offsets into it, so nothing is allocated for them.
+     */
+    interface FieldVisitor {
+        void field(String record, int keyStart, int keyEnd, int valueStart, int valueEnd, boolean escaped);
+    }
+
+    // Parse one record in a single pass, writing each value straight into a new entity
+    static <T> T decode(String record, EntityMetadata<T> metadata) {
+        T t = metadata.newInstance();
+        scan(record, (line, keyStart, keyEnd, start, end, escaped) -> {
+            FieldAccessor field = metadata.field(line, keyStart, keyEnd);
+            if (field.isLong()) {
+                field.set(t, Long.parseLong(line, start, end, 10));
+            } else {
+                field.set(t, escaped ? unescape(line, start, end) : line.substring(start, end));
+            }
+        });
+        return t;
+    }
+
+    // Walk the fields of one record in a single pass
+    static void scan(String record, FieldVisitor visitor) {
+        int length = record.length();
+        int pos = 0;
+        while (pos < length) {
+            int colon = pos;
+            while (colon < length && record.charAt(colon) != ':') {
+                if (record.charAt(colon) == ',') {
+                    colon = length;
+                    break;
+                }
+                colon++;
+            }
+            if (colon == length) {
+                throw new IllegalArgumentException("Malformed field at offset " + pos + " of record: " + record);
+            }
+
+            int start = colon + 1;
+            int end = start;
+            boolean escaped = false;
+            while (end < length) {
+                char c = record.charAt(end);
+                if (c == ',') {
+                    break;
+                }
+                if (c == '\\') {
+                    escaped = true;
+                    end++;
+                }
+                end++;
+            }
+            end = Math.min(end, length);
+            visitor.field(record, pos, colon, start, end, escaped);
+            pos = end + 1;
+        }
+    }
+
+    // Decode every line of a text table file, which may be a mapped buffer, one line at a time.
+    // Every record of a log is appended with its line break, so a last line without one may be
+    // the torn tail of an append cut short by a crash; it is skipped if it does not decode, and
+    // read as usual if it does, since an outside edit may have dropped the line break.
+    static <T> void read(ByteBuffer data, EntityMetadata<T> metadata, RecordVisitor<T> visitor, boolean log) {
+        byte[][] scratch = {new byte[256]};
+        int pos = data.position();
+        int limit = data.limit();
+        while (pos < limit && !visitor.isDone()) {
+            int end = lineEnd(data, pos, limit);
+            if (end > pos) {
+                String line = utf8(data, pos, end, scratch);
+                if (log && end == limit && !isWhole(line, metadata)) {
+                    break;
+                }
+                if (line.startsWith(Database.TOMBSTONE)) {
+                    visitor.deleted(Long.parseLong(line, Database.TOMBSTONE.length(), line.indexOf(','), 10));
+                } else {
+                    visitor.row(decode(line, metadata));
+                }
+            }
+            pos = nextLine(data, end, limit);
+        }
+    }
+
+    // Whether a line holds a whole record: a tombstone or a row that decodes
+    static boolean isWhole(String line, EntityMetadata<?> metadata) {
+        try {
+            if (line.startsWith(Database.TOMBSTONE)) {
+                Long.parseLong(line, Database.TOMBSTONE.length(), line.indexOf(','), 10);
+            } else {
+                decode(line, metadata);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // The rows of a text table file, each decoded only when the iterator reaches it. Tombstones are skipped.
+    static <T> Iterator<T> rows(ByteBuffer data, EntityMetadata<T> metadata) {
+        byte[] tombstone = Database.TOMBSTONE.getBytes(StandardCharsets.UTF_8);
+        return new Iterator<T>() {
+            private final byte[][] scratch = {new byte[256]};
+            private final int limit = data.limit();
+            private int pos = data.position();
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && pos < limit) {
+                    int end = lineEnd(data, pos, limit);
+                    if (end > pos && !regionEquals(data, pos, end, tombstone, true)) {
+                        next = decode(utf8(data, pos, end, scratch), metadata);
+                    }
+                    pos = nextLine(data, end, limit);
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T row = next;
+                next = null;
+                return row;
+            }
+        };
+    }
+
+    // Decode only the lines whose field holds one of the given values, comparing the raw bytes first.
+    // A line without the field is decoded too, since it takes the entity's default. Tombstones are skipped.
+    static <T> void select(ByteBuffer data, EntityMetadata<T> metadata, String fieldName, Collection<String> values,
+                           RecordVisitor<T> visitor) {
+        metadata.field(fieldName);
+        byte[] key = fieldName.getBytes(StandardCharsets.UTF_8);
+        List<byte[]> candidates = new ArrayList<>();
+        for (String value : values) {
+            if (value != null) {
+                candidates.add(value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        byte[] tombstone = Database.TOMBSTONE.getBytes(StandardCharsets.UTF_8);
+        byte[][] scratch = {new byte[256]};
+        int pos = data.position();
+        int limit = data.limit();
+        while (pos < limit && !visitor.isDone()) {
+            int end = lineEnd(data, pos, limit);
+            if (end > pos && !regionEquals(data, pos, end, tombstone, true)
+                    && matches(data, pos, end, key, values, candidates, scratch)) {
+                visitor.row(decode(utf8(data, pos, end, scratch), metadata));
+            }
+            pos = nextLine(data, end, limit);
+        }
+    }
+
+    private static boolean matches(ByteBuffer data, int pos, int end, byte[] key, Collection<String> values,
+                                   List<byte[]> candidates, byte[][] scratch) {
+        while (pos < end) {
+            int colon = pos;
+            while (colon < end && data.get(colon) != ':' && data.get(colon) != ',') {
+                colon++;
+            }
+            if (colon == end || data.get(colon) == ',') {
+                // malformed; let the decoder report it
+                return true;
+            }
+            int start = colon + 1;
+            int valueEnd = start;
+            boolean escaped = false;
+            while (valueEnd < end && data.get(valueEnd) != ',') {
+                if (data.get(valueEnd) == '\\') {
+                    escaped = true;
+                    valueEnd++;
+                }
+                valueEnd++;
+            }
+            valueEnd = Math.min(valueEnd, end);
+            if (regionEquals(data, pos, colon, key, false)) {
+                if (escaped) {
+                    String raw = utf8(data, start, valueEnd, scratch);
+                    return values.contains(unescape(raw, 0, raw.length()));
+                }
+                for (byte[] candidate : candidates) {
+                    if (regionEquals(data, start, valueEnd, candidate, false)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            pos = valueEnd + 1;
+        }
+        return true;
+    }
+
+    // Length of a log file without its torn tail: up to the last line break, unless the line after
+    // it decodes as a whole record whose line break is all that is missing
+    static long completeLength(ByteBuffer data, EntityMetadata<?> metadata) {
+        int limit = data.limit();
+        int end = limit;
+        while (end > data.position() && data.get(end - 1) != '\n' && data.get(end - 1) != '\r') {
+            end--;
+        }
+        if (end < limit && isWhole(utf8(data, end, limit, new byte[][]{new byte[limit - end]}), metadata)) {
+            end = limit;
+        }
+        return end - data.position();
+    }
+
+    // End of the line starting at pos, excluding its line break
+    private static int lineEnd(ByteBuffer data, int pos, int limit) {
+        int end = pos;
+        while (end < limit && data.get(end) != '\n' && data.get(end) != '\r') {
+            end++;
+        }
+        return end;
+    }
+
+    // Start of the line after the one ending at end
+    private static int nextLine(ByteBuffer data, int end, int limit) {
+        if (end < limit && data.get(end) == '\r') {
+            end++;
+        }
+        if (end < limit && data.get(end) == '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    // Whether data[start, end) equals bytes, or only starts with them when prefix is set
+    private static boolean regionEquals(ByteBuffer data, int start, int end, byte[] bytes, boolean prefix) {
+        int length = end - start;
+        if (prefix ? length < bytes.length : length != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (data.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String utf8(ByteBuffer data, int start, int end, byte[][] scratch) {
+        int length = end - start;
+        if (data.hasArray()) {
+            return new String(data.array(), data.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        if (scratch[0].length < length) {
+            scratch[0] = new byte[Math.max(length, scratch[0].length * 2)];
+        }
+        data.get(start, scratch[0], 0, length);
+        return new String(scratch[0], 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Serialize an entity, skipping null and empty values
+    static <T> String encode(T t, EntityMetadata<T> metadata) {
+        StringBuilder sb = new StringBuilder();
+        for (FieldAccessor field : metadata.fields()) {
+            Object obj = field.get(t);
+            if (obj != null) {
+                String value = obj.toString();
+                if (!value.isEmpty()) {
+                    sb.append(field.getName()).append(':');
+                    escape(sb, value);
+                    sb.append(',');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    static void escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\', ',', ':' -> sb.append('\\').append(c);
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    static String unescape(String record, int start, int end) {
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = record.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                c = record.charAt(++i);
+                if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'r') {
+                    c = '\r';
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,16 @@
+package comp3111.examsystem.service;
+
+/**
+ * Receives the records of a table file in file order.
+ */
+interface RecordVisitor<T> {
+    void row(T row);
+
+    // A tombstone deleting the given id; only written to append-only tables
+    void deleted(long id);
+
+    // Whether the visitor has seen enough; the reader then stops without decoding the rest
+    default boolean isDone() {
+        return false;
+    }
+}
@@ -0,0 +1,15 @@
+package comp3111.examsystem.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a text field whose words {@link Database#search} ranks rows by. The words of all the
+ * searchable fields of a row are indexed together as one document.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Searchable {
+}
@@ -0,0 +1,159 @@
+package comp3111.examsystem.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style ids: milliseconds since a custom epoch in the high 41 bits, a 10-bit node id,
+ * then a 12-bit sequence within the millisecond. Up to 4096 ids per millisecond come from one
+ * node without waiting; beyond that the generator borrows the next millisecond, so ids stay
+ * unique and increasing without a lock. The tables used plain millisecond timestamps as ids
+ * before; those stay below 2^42 until the year 2109, while an id issued here passes 2^42 once
+ * 2^20 milliseconds (about 17 minutes) of the custom epoch have gone by, so every id issued
+ * since is above every old one and new rows never collide with old ones.
+ * <p>
+ * Copies of the app sharing a data directory, on one machine or several, need different node
+ * ids. Unless the examsystem.node system property fixes one, each copy claims the next node id
+ * from a registry file in the directory under its lock, so two running copies share a node only
+ * if 1024 other starts came between them.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+    // 2024-01-01T00:00:00Z
+    static final long EPOCH = 1704067200000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // ids below this are millisecond timestamps from before the generator was introduced
+    public static final long LEGACY_LIMIT = 1L << 42;
+    // the node id the next copy of the app to start in a data directory claims
+    static final String NODE_FILE = "nodes.txt";
+
+    private static final ConcurrentMap<String, SnowflakeIdGenerator> DIRECTORIES = new ConcurrentHashMap<>();
+
+    // the data directory the node id is claimed from, or null if it was given
+    private final String directory;
+    private volatile long node = -1;
+    // milliseconds since the epoch and sequence of the last id, packed as (millis << SEQUENCE_BITS) | sequence
+    private final AtomicLong last = new AtomicLong();
+
+    public SnowflakeIdGenerator(long node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE);
+        }
+        this.directory = null;
+        this.node = node;
+    }
+
+    private SnowflakeIdGenerator(String directory) {
+        this.directory = directory;
+    }
+
+    // The generator for rows of the data directory, shared by this process. Its node id comes
+    // from the examsystem.node system property, or else is claimed from the directory when the
+    // first id is issued, so reading tables never touches the registry.
+    public static SnowflakeIdGenerator forDirectory(String directory) {
+        String path = Paths.get(directory).toAbsolutePath().toString();
+        return DIRECTORIES.computeIfAbsent(path, p -> {
+            Long node = Long.getLong("examsystem.node");
+            return node != null ? new SnowflakeIdGenerator(node) : new SnowflakeIdGenerator(directory);
+        });
+    }
+
+    // Take the node id recorded in the directory's registry and record the one after it
+    static long claimNode(String directory) {
+        Path registry = Paths.get(directory, NODE_FILE);
+        TableLock lock = TableLock.forFile(registry.toString());
+        lock.lockWrite();
+        try {
+            long node = 0;
+            if (Files.exists(registry)) {
+                String record = Files.readString(registry, StandardCharsets.UTF_8).trim();
+                long[] next = {-1};
+                RecordCodec.scan(record, (line, keyStart, keyEnd, start, end, escaped) -> {
+                    if (line.startsWith("next", keyStart) && keyEnd - keyStart == 4) {
+                        next[0] = Long.parseLong(line, start, end, 10);
+                    }
+                });
+                if (next[0] < 0 || next[0] > MAX_NODE) {
+                    throw new IllegalStateException("Malformed node registry " + registry + ": " + record);
+                }
+                node = next[0];
+            }
+            // forced to disk, so a crash cannot hand the same node to the next start
+            byte[] next = ("next:" + ((node + 1) & MAX_NODE) + ",\r\n").getBytes(StandardCharsets.UTF_8);
+            FileUtil.writeAtomic(next, registry, Durability.FSYNC);
+            return node;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot claim a node id in " + directory, e);
+        } finally {
+            lock.unlockWrite();
+        }
+    }
+
+    private long node() {
+        long claimed = node;
+        if (claimed < 0) {
+            synchronized (this) {
+                if (node < 0) {
+                    node = claimNode(directory);
+                }
+                claimed = node;
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    public long nextId() {
+        long node = node();
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long next = last.accumulateAndGet(now, (previous, current) -> Math.max(previous + 1, current));
+        long millis = next >>> SEQUENCE_BITS;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    // Never issue an id at or below one already stored, even if the clock went back since
+    @Override
+    public void observe(long id) {
+        if (isLegacy(id)) {
+            // a timestamp, not made of a time, node and sequence, and always below the ids issued here
+            return;
+        }
+        long packed = ((id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS) | (id & SEQUENCE_MASK);
+        last.accumulateAndGet(packed, Math::max);
+    }
+
+    // Whether the id is a millisecond timestamp used as an id before this generator
+    public static boolean isLegacy(long id) {
+        return id < LEGACY_LIMIT;
+    }
+
+    // When the id was issued, in epoch milliseconds; a legacy id is its own timestamp
+    public static long timestampOf(long id) {
+        if (isLegacy(id)) {
+            return id;
+        }
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    // The smallest id issued by this generator at or after the time, in epoch milliseconds.
+    // Legacy ids sort below every issued one whatever their time, so a range of rows since a
+    // time needs a legacy branch as well:
+    //   range("id", since, LEGACY_LIMIT - 1) for the older rows, plus
+    //   range("id", firstIdAt(since), null) for the newer ones
+    public static long firstIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - EPOCH) << (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    public static long nodeOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE;
+    }
+}
@@ -0,0 +1,334 @@
+package comp3111.examsystem.service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * In-memory copy of one table file together with its primary-key and secondary indexes.
+ * In resident mode a single instance is shared by every {@link Database} opened on that file;
+ * the file's modification time and size are kept as a validation token, so a change made
+ * outside this process is noticed on the next access and the table is reloaded.
+ * Otherwise {@link Database} loads a throwaway instance for each call. Either way, row changes
+ * and the writes that follow them are reported to the {@link TableListener}s of the file.
+ */
+class TableCache<T> {
+    private static final ConcurrentMap<String, TableCache<?>> CACHES = new ConcurrentHashMap<>();
+    // file path -> listeners told about changes to that table, whichever instance makes them
+    private static final ConcurrentMap<String, List<TableListener<?>>> LISTENERS = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final String path;
+    private final Function<T, Long> idOf;
+    private List<T> rows;
+    // id -> first row with that id, matching the first-match behaviour of a linear scan
+    private Map<Long, T> byId;
+    private int duplicateIds;
+    // field name -> secondary index, for the fields declared with @Indexed
+    private final Map<String, HashIndex<T>> indexes = new HashMap<>();
+    // field name -> trigram index, for the fields declared with @TrigramIndexed
+    private final Map<String, TrigramIndex<T>> trigramIndexes = new HashMap<>();
+    // field name -> sorted index, for the fields declared with @RangeIndexed
+    private final Map<String, RangeIndex<T>> rangeIndexes = new HashMap<>();
+    // ranked word index over the fields declared with @Searchable, or null without any
+    private final FullTextIndex<T> textIndex;
+    // row -> insertion sequence, so indexes can keep their buckets in table order
+    private final Map<T, Long> positions = new IdentityHashMap<>();
+    private long nextPosition;
+    // records in the table file, live or not; more than the row count once a log has dead records
+    private int records;
+    private long lastModified = -1;
+    private long length = -1;
+
+    TableCache(File file, Function<T, Long> idOf) {
+        this(file, idOf, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList());
+    }
+
+    TableCache(File file, Function<T, Long> idOf, Map<String, Function<T, Object>> indexedFields,
+               Map<String, Function<T, Object>> trigramFields, Map<String, Function<T, Object>> rangeFields,
+               List<Function<T, Object>> searchableFields) {
+        this.file = file;
+        this.path = file.getAbsolutePath();
+        this.idOf = idOf;
+        for (Map.Entry<String, Function<T, Object>> field : indexedFields.entrySet()) {
+            indexes.put(field.getKey(), new HashIndex<>(field.getValue(), positions::get));
+        }
+        for (Map.Entry<String, Function<T, Object>> field : trigramFields.entrySet()) {
+            trigramIndexes.put(field.getKey(), new TrigramIndex<>(field.getValue(), positions::get));
+        }
+        for (Map.Entry<String, Function<T, Object>> field : rangeFields.entrySet()) {
+            rangeIndexes.put(field.getKey(), new RangeIndex<>(field.getValue(), positions::get));
+        }
+        textIndex = searchableFields.isEmpty() ? null : new FullTextIndex<>(searchableFields);
+    }
+
+    // Get the cache shared by all databases backed by the given file
+    @SuppressWarnings("unchecked")
+    static <T> TableCache<T> forFile(File file, Function<T, Long> idOf, Map<String, Function<T, Object>> indexedFields,
+                                     Map<String, Function<T, Object>> trigramFields,
+                                     Map<String, Function<T, Object>> rangeFields,
+                                     List<Function<T, Object>> searchableFields) {
+        return (TableCache<T>) CACHES.computeIfAbsent(file.getAbsolutePath(),
+                path -> new TableCache<>(file, idOf, indexedFields, trigramFields, rangeFields, searchableFields));
+    }
+
+    // Report every later change to the table in the given file to the listener
+    static void addListener(File file, TableListener<?> listener) {
+        LISTENERS.computeIfAbsent(file.getAbsolutePath(), path -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    static void removeListener(File file, TableListener<?> listener) {
+        List<TableListener<?>> listeners = LISTENERS.get(file.getAbsolutePath());
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    // Drop every cached table, forcing the next access to read from disk
+    static void clearAll() {
+        CACHES.clear();
+    }
+
+    // Whether the rows are loaded and the file has not changed since
+    boolean isLoaded() {
+        return rows != null && file.lastModified() == lastModified && file.length() == length;
+    }
+
+    // Replace the cached rows with a freshly loaded table
+    void load(List<T> rows, int records) {
+        this.rows = rows;
+        this.records = records;
+        byId = new HashMap<>(rows.size() * 2);
+        duplicateIds = 0;
+        positions.clear();
+        for (HashIndex<T> index : indexes.values()) {
+            index.clear();
+        }
+        for (TrigramIndex<T> index : trigramIndexes.values()) {
+            index.clear();
+        }
+        for (RangeIndex<T> index : rangeIndexes.values()) {
+            index.clear();
+        }
+        if (textIndex != null) {
+            textIndex.clear();
+        }
+        for (T row : rows) {
+            if (byId.putIfAbsent(idOf.apply(row), row) != null) {
+                duplicateIds++;
+            }
+            addToIndexes(row);
+        }
+        readToken();
+    }
+
+    List<T> rows() {
+        return rows;
+    }
+
+    int records() {
+        return records;
+    }
+
+    void recordsAppended(int count) {
+        records += count;
+    }
+
+    // The file was rewritten with only its live records; the rows themselves are unchanged
+    void compacted(int records) {
+        this.records = records;
+        stamp();
+    }
+
+    // Look up a row by primary key in O(1)
+    T get(Long id) {
+        return id == null ? null : byId.get(id);
+    }
+
+    // Every row with the given id, in table order
+    List<T> getAll(Long id) {
+        T first = get(id);
+        if (first == null) {
+            return Collections.emptyList();
+        }
+        if (duplicateIds == 0) {
+            return Collections.singletonList(first);
+        }
+        List<T> matches = new ArrayList<>();
+        for (T row : rows) {
+            if (id.equals(idOf.apply(row))) {
+                matches.add(row);
+            }
+        }
+        return matches;
+    }
+
+    // The secondary index on a field, or null if the field is not indexed
+    HashIndex<T> index(String field) {
+        return indexes.get(field);
+    }
+
+    // The trigram index on a field, or null if the field has none
+    TrigramIndex<T> trigramIndex(String field) {
+        return trigramIndexes.get(field);
+    }
+
+    // The sorted index on a field, or null if the field has none
+    RangeIndex<T> rangeIndex(String field) {
+        return rangeIndexes.get(field);
+    }
+
+    // The rows sorted back into table order, as from a scan
+    List<T> inTableOrder(List<T> rows) {
+        rows.sort(Comparator.comparingLong(positions::get));
+        return rows;
+    }
+
+    // The word index over the searchable fields, or null if the entity has none
+    FullTextIndex<T> textIndex() {
+        return textIndex;
+    }
+
+    void add(T row) {
+        rows.add(row);
+        if (byId.putIfAbsent(idOf.apply(row), row) != null) {
+            duplicateIds++;
+        }
+        addToIndexes(row);
+        for (TableListener<T> listener : listeners()) {
+            listener.rowAdded(row);
+        }
+    }
+
+    // Apply an in-place change to a row, moving it between index buckets if indexed fields change
+    void update(T row, Consumer<T> change) {
+        for (HashIndex<T> index : indexes.values()) {
+            index.remove(row);
+        }
+        for (TrigramIndex<T> index : trigramIndexes.values()) {
+            index.remove(row);
+        }
+        for (RangeIndex<T> index : rangeIndexes.values()) {
+            index.remove(row);
+        }
+        if (textIndex != null) {
+            textIndex.remove(row);
+        }
+        List<TableListener<T>> listeners = listeners();
+        for (TableListener<T> listener : listeners) {
+            listener.rowRemoved(row);
+        }
+        change.accept(row);
+        for (HashIndex<T> index : indexes.values()) {
+            index.add(row);
+        }
+        for (TrigramIndex<T> index : trigramIndexes.values()) {
+            index.add(row);
+        }
+        for (RangeIndex<T> index : rangeIndexes.values()) {
+            index.add(row);
+        }
+        if (textIndex != null) {
+            textIndex.add(row);
+        }
+        for (TableListener<T> listener : listeners) {
+            listener.rowAdded(row);
+        }
+    }
+
+    void remove(T row) {
+        for (HashIndex<T> index : indexes.values()) {
+            index.remove(row);
+        }
+        for (TrigramIndex<T> index : trigramIndexes.values()) {
+            index.remove(row);
+        }
+        for (RangeIndex<T> index : rangeIndexes.values()) {
+            index.remove(row);
+        }
+        if (textIndex != null) {
+            textIndex.remove(row);
+        }
+        positions.remove(row);
+        for (TableListener<T> listener : listeners()) {
+            listener.rowRemoved(row);
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) == row) {
+                rows.remove(i);
+                break;
+            }
+        }
+        Long id = idOf.apply(row);
+        if (byId.get(id) != row) {
+            duplicateIds--;
+            return;
+        }
+        byId.remove(id);
+        if (duplicateIds > 0) {
+            // another row shares this id, so it becomes the one a lookup should find
+            for (T other : rows) {
+                if (id.equals(idOf.apply(other))) {
+                    byId.put(id, other);
+                    duplicateIds--;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void addToIndexes(T row) {
+        positions.put(row, nextPosition++);
+        for (HashIndex<T> index : indexes.values()) {
+            index.add(row);
+        }
+        for (TrigramIndex<T> index : trigramIndexes.values()) {
+            index.add(row);
+        }
+        for (RangeIndex<T> index : rangeIndexes.values()) {
+            index.add(row);
+        }
+        if (textIndex != null) {
+            textIndex.add(row);
+        }
+    }
+
+    // Record the current state of the file as the validation token after writing it ourselves
+    void stamp() {
+        long lastModifiedBefore = lastModified;
+        long lengthBefore = length;
+        readToken();
+        for (TableListener<T> listener : listeners()) {
+            listener.written(lastModifiedBefore, lengthBefore, lastModified, length);
+        }
+    }
+
+    private void readToken() {
+        lastModified = file.lastModified();
+        length = file.length();
+    }
+
+    // Forget the cached rows, e.g. after a write that may not have reached the file
+    void invalidate() {
+        rows = null;
+        for (TableListener<T> listener : listeners()) {
+            listener.invalidated();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TableListener<T>> listeners() {
+        List<TableListener<?>> listeners = LISTENERS.get(path);
+        return listeners == null ? Collections.emptyList() : (List<TableListener<T>>) (List<?>) listeners;
+    }
+}
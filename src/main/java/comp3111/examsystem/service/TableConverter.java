@@ -0,0 +1,99 @@
+package comp3111.examsystem.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Converts table files between the text and binary formats. Records are carried across one
+ * by one with their fields in the order they were written, and tombstones are kept, so a
+ * round trip reproduces the original records. The source file is never modified.
+ */
+public class TableConverter {
+    private TableConverter() {
+    }
+
+    // Convert the tables of the given entities in a data directory to the target format,
+    // skipping any table that has no file in the other format
+    public static void migrate(String directory, TableFormat target, Class<?>... entities) throws IOException {
+        TableFormat source = target == TableFormat.BINARY ? TableFormat.TEXT : TableFormat.BINARY;
+        for (Class<?> entity : entities) {
+            String tableName = entity.getSimpleName().toLowerCase();
+            Path from = Paths.get(directory, tableName + source.getExtension());
+            Path to = Paths.get(directory, tableName + target.getExtension());
+            if (!Files.exists(from)) {
+                continue;
+            }
+            if (target == TableFormat.BINARY) {
+                textToBinary(entity, from, to);
+            } else {
+                binaryToText(entity, from, to);
+            }
+        }
+    }
+
+    public static void textToBinary(Class<?> entity, Path text, Path binary) throws IOException {
+        EntityMetadata<?> metadata = EntityMetadata.of(entity);
+        List<FieldAccessor> fields = metadata.fields();
+        BinaryTableCodec.Writer writer = new BinaryTableCodec.Writer();
+        writer.write(BinaryTableCodec.header(metadata));
+        byte[] data = Files.readAllBytes(text);
+        // a log may end in a record torn by a crash, which readers of the table skip
+        int length = Database.isAppendOnly(entity) ? (int) RecordCodec.completeLength(ByteBuffer.wrap(data), metadata) : data.length;
+        for (String line : new String(data, 0, length, StandardCharsets.UTF_8).split("\\r\\n|\\r|\\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith(Database.TOMBSTONE)) {
+                writer.tombstone(Long.parseLong(line, Database.TOMBSTONE.length(), line.indexOf(','), 10));
+                continue;
+            }
+            writer.beginRow();
+            RecordCodec.scan(line, (record, keyStart, keyEnd, valueStart, valueEnd, escaped) -> {
+                FieldAccessor field = metadata.field(record, keyStart, keyEnd);
+                int index = fields.indexOf(field);
+                if (field.isLong()) {
+                    writer.field(index, Long.parseLong(record, valueStart, valueEnd, 10));
+                } else {
+                    writer.field(index, escaped ? RecordCodec.unescape(record, valueStart, valueEnd)
+                            : record.substring(valueStart, valueEnd));
+                }
+            });
+            writer.endRow();
+        }
+        FileUtil.writeAtomic(writer.toByteArray(), binary, Database.getDurability());
+    }
+
+    public static void binaryToText(Class<?> entity, Path binary, Path text) throws IOException {
+        byte[] data = Files.readAllBytes(binary);
+        StringBuilder sb = new StringBuilder();
+        if (data.length > 0) {
+            BinaryTableCodec.Reader reader = new BinaryTableCodec.Reader(data);
+            for (int i = 0; i < reader.fieldCount(); i++) {
+                // fail early on a file written for a different entity
+                EntityMetadata.of(entity).field(reader.fieldName(i));
+            }
+            while (reader.next()) {
+                if (reader.isTombstone()) {
+                    sb.append(Database.TOMBSTONE).append(reader.deletedId()).append(",\r\n");
+                    continue;
+                }
+                while (reader.nextField()) {
+                    sb.append(reader.fieldName(reader.fieldIndex())).append(':');
+                    if (reader.isLongField()) {
+                        sb.append(reader.longValue());
+                    } else {
+                        RecordCodec.escape(sb, reader.textValue());
+                    }
+                    sb.append(',');
+                }
+                sb.append("\r\n");
+            }
+        }
+        FileUtil.writeAtomic(sb.toString().getBytes(StandardCharsets.UTF_8), text, Database.getDurability());
+    }
+}
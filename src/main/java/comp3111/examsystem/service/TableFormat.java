@@ -0,0 +1,20 @@
+package comp3111.examsystem.service;
+
+/**
+ * On-disk encoding of a table file. TEXT is the original {@code name:value,} line format;
+ * BINARY is the length-prefixed, checksummed format written by {@link BinaryTableCodec}.
+ */
+public enum TableFormat {
+    TEXT(".txt"),
+    BINARY(".bin");
+
+    private final String extension;
+
+    TableFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
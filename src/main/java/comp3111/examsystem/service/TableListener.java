@@ -0,0 +1,21 @@
+package comp3111.examsystem.service;
+
+/**
+ * Told about every row change made through this process to one table file, so derived data
+ * such as {@link GradeStatistics} can follow the table without reading it again. An update is
+ * reported as the old row being removed and the new one added; the row object may change once
+ * the call returns, so a listener must copy what it needs. Changes are reported before the file
+ * is written, then confirmed by {@link #written} or withdrawn by {@link #invalidated}.
+ */
+interface TableListener<T> {
+    void rowAdded(T row);
+
+    void rowRemoved(T row);
+
+    // The file now holds every change reported so far. The token before the write is that of the
+    // rows the changes were made to; if it is not the one last seen, the file was changed elsewhere.
+    void written(long lastModifiedBefore, long lengthBefore, long lastModified, long length);
+
+    // A write failed, so changes reported since the last one written may not be in the file
+    void invalidated();
+}
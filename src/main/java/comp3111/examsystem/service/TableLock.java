@@ -0,0 +1,142 @@
+package comp3111.examsystem.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read/write lock on a data file that also holds between processes, so several copies of the
+ * app can share one data directory. Inside this process a {@link ReentrantReadWriteLock} orders
+ * the threads; across processes a {@link FileLock} on a sibling {@code .lock} file does, shared
+ * while any thread here reads and exclusive while one writes. A process can hold only one lock
+ * on a file, so the shared lock is taken by the first reader and released by the last.
+ */
+final class TableLock {
+    private static final ConcurrentMap<String, TableLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final ReentrantReadWriteLock local = new ReentrantReadWriteLock();
+    private final Path lockFile;
+    // the state below is guarded by this
+    private FileChannel channel;
+    private FileLock fileLock;
+    private int readers;
+    private boolean writing;
+
+    private TableLock(Path lockFile) {
+        this.lockFile = lockFile;
+    }
+
+    // The lock shared by everything in this process that uses the given file
+    static TableLock forFile(String file) {
+        String path = Paths.get(file).toAbsolutePath().toString();
+        return LOCKS.computeIfAbsent(path, p -> new TableLock(Paths.get(p + ".lock")));
+    }
+
+    void lockRead() {
+        local.readLock().lock();
+        try {
+            acquireShared();
+        } catch (RuntimeException e) {
+            local.readLock().unlock();
+            throw e;
+        }
+    }
+
+    void unlockRead() {
+        try {
+            releaseShared();
+        } finally {
+            local.readLock().unlock();
+        }
+    }
+
+    void lockWrite() {
+        local.writeLock().lock();
+        if (local.getWriteHoldCount() > 1) {
+            return;
+        }
+        try {
+            acquireExclusive();
+        } catch (RuntimeException e) {
+            local.writeLock().unlock();
+            throw e;
+        }
+    }
+
+    void unlockWrite() {
+        try {
+            if (local.getWriteHoldCount() == 1) {
+                releaseExclusive();
+            }
+        } finally {
+            local.writeLock().unlock();
+        }
+    }
+
+    private synchronized void acquireShared() {
+        // a thread that writes may also read; its exclusive lock already covers that
+        if (readers++ == 0 && !writing) {
+            fileLock = lock(true);
+        }
+    }
+
+    private synchronized void releaseShared() {
+        if (--readers == 0 && !writing) {
+            release();
+        }
+    }
+
+    private synchronized void acquireExclusive() {
+        // the local write lock has excluded every reader here, so no shared lock is left to upgrade
+        writing = true;
+        try {
+            fileLock = lock(false);
+        } catch (RuntimeException e) {
+            writing = false;
+            throw e;
+        }
+    }
+
+    private synchronized void releaseExclusive() {
+        writing = false;
+        release();
+        if (readers > 0) {
+            // the writer kept reading, as when a reader reloads a table: go back to sharing
+            fileLock = lock(true);
+        }
+    }
+
+    private FileLock lock(boolean shared) {
+        try {
+            if (channel == null || !channel.isOpen()) {
+                channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+            }
+            return channel.lock(0, Long.MAX_VALUE, shared);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot lock " + lockFile, e);
+        }
+    }
+
+    private void release() {
+        if (fileLock == null) {
+            return;
+        }
+        try {
+            if (fileLock.isValid()) {
+                fileLock.release();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            fileLock = null;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package comp3111.examsystem.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A group of mutations across several tables that is applied all together or not at all.
+ * While a transaction is open on a thread, the add, update and delete methods of every
+ * {@link Database} used on that thread stage their change here instead of writing it.
+ * {@link #commit()} records all staged changes in a journal, forces the journal to disk once,
+ * then applies them with one write per table and removes the journal. If the process dies
+ * before the journal is complete nothing was applied; if it dies after, or a table write fails,
+ * the journal stays and {@link #recover()} applies it again, as does the next commit in the
+ * same directory. Reads inside a transaction do not see its staged changes.
+ * <pre>
+ * try (Transaction transaction = Transaction.begin()) {
+ *     gradeDatabase.deleteByKeys(gradeIds);
+ *     quizDatabase.deleteByKeys(quizIds);
+ *     transaction.commit();
+ * }
+ * </pre>
+ */
+public class Transaction implements AutoCloseable {
+    static final String JOURNAL = "journal.log";
+
+    private static final ThreadLocal<Transaction> CURRENT = new ThreadLocal<>();
+
+    private final Path journal;
+    // staged mutations per database, in the order the databases were first touched
+    private final Map<Database<?>, List<Mutation>> staged = new IdentityHashMap<>();
+    private final List<Database<?>> order = new ArrayList<>();
+    private boolean open = true;
+
+    private Transaction(Path journal) {
+        this.journal = journal;
+    }
+
+    // Start a transaction journaled in the default data directory
+    public static Transaction begin() {
+        return begin(Paths.get("src", "main", "resources", "database").toString());
+    }
+
+    // Start a transaction on the current thread, journaled in the given directory
+    public static Transaction begin(String directory) {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("A transaction is already open on this thread");
+        }
+        Transaction transaction = new Transaction(Paths.get(directory, JOURNAL));
+        CURRENT.set(transaction);
+        return transaction;
+    }
+
+    // The transaction open on the current thread, or null
+    static Transaction current() {
+        return CURRENT.get();
+    }
+
+    void stage(Database<?> database, Mutation mutation) {
+        List<Mutation> mutations = staged.get(database);
+        if (mutations == null) {
+            mutations = new ArrayList<>();
+            staged.put(database, mutations);
+            order.add(database);
+        }
+        mutations.add(mutation);
+    }
+
+    // Make every staged change durable, then apply it
+    public void commit() throws IOException {
+        if (!open) {
+            throw new IllegalStateException("Transaction is already finished");
+        }
+        end();
+        if (order.isEmpty()) {
+            return;
+        }
+        TableLock lock = TableLock.forFile(journal.toString());
+        lock.lockWrite();
+        try {
+            // finish a commit that failed to apply before its journal is overwritten
+            if (Files.exists(journal)) {
+                replay(journal);
+            }
+            StringBuilder sb = new StringBuilder();
+            int count = 0;
+            for (Database<?> database : order) {
+                for (Mutation mutation : staged.get(database)) {
+                    appendEntry(sb, database, mutation);
+                    count++;
+                }
+            }
+            sb.append("commit:").append(count).append(",\r\n");
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            // the journal is removed only once every table is written, so a failed write is
+            // applied again by recover(); applying a mutation twice leaves the same rows
+            try {
+                for (Database<?> database : order) {
+                    database.apply(staged.get(database));
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Files.delete(journal);
+        } finally {
+            lock.unlockWrite();
+        }
+    }
+
+    // Discard every staged change
+    public void rollback() {
+        end();
+        staged.clear();
+        order.clear();
+    }
+
+    @Override
+    public void close() {
+        if (open) {
+            rollback();
+        }
+    }
+
+    private void end() {
+        open = false;
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    // Finish a transaction interrupted by a crash, using the journal in the default data directory
+    public static int recover() throws IOException {
+        return recover(Paths.get("src", "main", "resources", "database").toString());
+    }
+
+    // Apply the journal left in the directory if it was completely written, or discard it if not.
+    // Returns the number of mutations applied again.
+    public static int recover(String directory) throws IOException {
+        Path journal = Paths.get(directory, JOURNAL);
+        TableLock lock = TableLock.forFile(journal.toString());
+        lock.lockWrite();
+        try {
+            return Files.exists(journal) ? replay(journal) : 0;
+        } finally {
+            lock.unlockWrite();
+        }
+    }
+
+    // Apply a journal and remove it, or only remove it if it was never committed; the caller
+    // holds the journal's write lock
+    private static int replay(Path journal) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        int count = lines.size() - 1;
+        String last = lines.isEmpty() ? "" : lines.get(count);
+        if (!last.equals("commit:" + count + ",")) {
+            // never committed, so none of it was applied
+            Files.delete(journal);
+            return 0;
+        }
+        Map<String, Database<?>> databases = new LinkedHashMap<>();
+        Map<String, List<Mutation>> mutations = new LinkedHashMap<>();
+        for (String line : lines.subList(0, count)) {
+            Map<String, String> entry = new LinkedHashMap<>();
+            RecordCodec.scan(line, (record, keyStart, keyEnd, valueStart, valueEnd, escaped) ->
+                    entry.put(record.substring(keyStart, keyEnd), RecordCodec.unescape(record, valueStart, valueEnd)));
+            String table = entry.get("entity") + "@" + entry.get("directory");
+            Database<?> database = databases.get(table);
+            if (database == null) {
+                database = open(entry.get("entity"), entry.get("directory"));
+                databases.put(table, database);
+                mutations.put(table, new ArrayList<>());
+            }
+            mutations.get(table).add(readEntry(database, entry));
+        }
+        try {
+            for (Map.Entry<String, Database<?>> database : databases.entrySet()) {
+                database.getValue().apply(mutations.get(database.getKey()));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.delete(journal);
+        return count;
+    }
+
+    private static Database<?> open(String entity, String directory) {
+        try {
+            return new Database<>(Class.forName(entity), directory);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Journal refers to unknown entity " + entity, e);
+        }
+    }
+
+    private static void appendEntry(StringBuilder sb, Database<?> database, Mutation mutation) {
+        sb.append("op:").append(mutation.kind).append(',');
+        sb.append("entity:");
+        RecordCodec.escape(sb, database.entitySample.getName());
+        sb.append(",directory:");
+        RecordCodec.escape(sb, database.directory);
+        sb.append(",id:").append(mutation.id).append(',');
+        if (mutation.entity != null) {
+            sb.append("record:");
+            RecordCodec.escape(sb, database.encodeText(mutation.entity));
+            sb.append(',');
+        }
+        sb.append("\r\n");
+    }
+
+    private static Mutation readEntry(Database<?> database, Map<String, String> entry) {
+        Mutation.Kind kind = Mutation.Kind.valueOf(entry.get("op"));
+        long id = Long.parseLong(entry.get("id"));
+        String record = entry.get("record");
+        Object entity = record == null ? null : RecordCodec.decode(record, database.metadata);
+        return new Mutation(kind, id, entity);
+    }
+
+    /**
+     * One staged change to a row. The entity is a private copy taken when the change was staged.
+     */
+    static final class Mutation {
+        enum Kind { ADD, UPDATE, DELETE }
+
+        final Kind kind;
+        final long id;
+        final Object entity;
+
+        Mutation(Kind kind, long id, Object entity) {
+            this.kind = kind;
+            this.id = id;
+            this.entity = entity;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package comp3111.examsystem.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Inverted index from every run of three characters in the string form of one field to the
+ * rows whose value contains it. A row can only contain a text of three or more characters if
+ * it holds all of the text's trigrams, so intersecting their postings narrows a substring
+ * search to a few candidates, which the caller then checks with {@code contains}.
+ */
+class TrigramIndex<T> {
+    // rough sizes on a 64-bit JVM with compressed references: a map entry with its boxed key and
+    // an empty identity set, and one row reference in a set at its usual load
+    private static final long BYTES_PER_TRIGRAM = 112;
+    private static final long BYTES_PER_POSTING = 12;
+
+    private final Function<T, Object> valueOf;
+    private final ToLongFunction<T> positionOf;
+    private final Map<Long, Set<T>> postings = new HashMap<>();
+    private long postingCount;
+
+    TrigramIndex(Function<T, Object> valueOf, ToLongFunction<T> positionOf) {
+        this.valueOf = valueOf;
+        this.positionOf = positionOf;
+    }
+
+    // Rows that may contain the text, in table order, or null when the text is too short to narrow them
+    List<T> candidates(String text) {
+        if (text.length() < 3) {
+            return null;
+        }
+        List<Set<T>> sets = new ArrayList<>();
+        for (long trigram : trigrams(text)) {
+            Set<T> rows = postings.get(trigram);
+            if (rows == null) {
+                return Collections.emptyList();
+            }
+            sets.add(rows);
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+        List<T> candidates = new ArrayList<>();
+        for (T row : sets.get(0)) {
+            boolean all = true;
+            for (int i = 1; i < sets.size() && all; i++) {
+                all = sets.get(i).contains(row);
+            }
+            if (all) {
+                candidates.add(row);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(positionOf));
+        return candidates;
+    }
+
+    void add(T row) {
+        String value = textOf(row);
+        if (value == null) {
+            return;
+        }
+        for (long trigram : trigrams(value)) {
+            Set<T> rows = postings.computeIfAbsent(trigram, k -> Collections.newSetFromMap(new IdentityHashMap<>()));
+            if (rows.add(row)) {
+                postingCount++;
+            }
+        }
+    }
+
+    void remove(T row) {
+        String value = textOf(row);
+        if (value == null) {
+            return;
+        }
+        for (long trigram : trigrams(value)) {
+            Set<T> rows = postings.get(trigram);
+            if (rows != null && rows.remove(row)) {
+                postingCount--;
+                if (rows.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    void clear() {
+        postings.clear();
+        postingCount = 0;
+    }
+
+    int trigramCount() {
+        return postings.size();
+    }
+
+    // Estimated heap used by the index, in bytes
+    long memoryBytes() {
+        return postings.size() * BYTES_PER_TRIGRAM + postingCount * BYTES_PER_POSTING;
+    }
+
+    private String textOf(T row) {
+        Object value = valueOf.apply(row);
+        return value == null ? null : value.toString();
+    }
+
+    // The distinct trigrams of a text, each packed into a long as three 16-bit chars
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,16 @@
+package comp3111.examsystem.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a text field that {@link Database} should keep a trigram index on. While tables are
+ * resident, {@code queryFuzzyByField} and {@code contains} conditions of a {@link Query} on the
+ * field only test the rows that hold every three-character run of the searched text.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface TrigramIndexed {
+}
@@ -0,0 +1,86 @@
+package comp3111.examsystem.service.primitive;
+
+import java.util.Arrays;
+
+/**
+ * Count, sum, minimum and maximum of the values added to each of a growing number of
+ * numbered slots, such as groups, kept in parallel primitive arrays.
+ */
+public class Accumulators {
+    private long[] counts;
+    private long[] sums;
+    private long[] mins;
+    private long[] maxes;
+    private int size;
+
+    public Accumulators() {
+        this(16);
+    }
+
+    public Accumulators(int expectedSlots) {
+        int capacity = Math.max(1, expectedSlots);
+        counts = new long[capacity];
+        sums = new long[capacity];
+        mins = new long[capacity];
+        maxes = new long[capacity];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        Arrays.fill(maxes, Long.MIN_VALUE);
+    }
+
+    // Add a value to a slot; slots past the last one used so far are created empty
+    public void add(int slot, long value) {
+        if (slot >= counts.length) {
+            grow(slot + 1);
+        }
+        if (slot >= size) {
+            size = slot + 1;
+        }
+        counts[slot]++;
+        sums[slot] += value;
+        if (value < mins[slot]) {
+            mins[slot] = value;
+        }
+        if (value > maxes[slot]) {
+            maxes[slot] = value;
+        }
+    }
+
+    // One past the highest slot used
+    public int size() {
+        return size;
+    }
+
+    public long count(int slot) {
+        return slot < size ? counts[slot] : 0;
+    }
+
+    public long sum(int slot) {
+        return slot < size ? sums[slot] : 0;
+    }
+
+    // The smallest value added to the slot, or Long.MAX_VALUE if none was
+    public long min(int slot) {
+        return slot < size ? mins[slot] : Long.MAX_VALUE;
+    }
+
+    // The largest value added to the slot, or Long.MIN_VALUE if none was
+    public long max(int slot) {
+        return slot < size ? maxes[slot] : Long.MIN_VALUE;
+    }
+
+    // The mean of the slot's values, or NaN if it has none
+    public double average(int slot) {
+        return (double) sum(slot) / count(slot);
+    }
+
+    private void grow(int needed) {
+        int capacity = Math.max(needed, counts.length * 2);
+        int old = counts.length;
+        counts = Arrays.copyOf(counts, capacity);
+        sums = Arrays.copyOf(sums, capacity);
+        mins = Arrays.copyOf(mins, capacity);
+        maxes = Arrays.copyOf(maxes, capacity);
+        Arrays.fill(mins, old, capacity, Long.MAX_VALUE);
+        Arrays.fill(maxes, old, capacity, Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,15 @@
+package comp3111.examsystem.service.primitive;
+
+/**
+ * Hash mixing shared by the primitive maps.
+ */
+final class Hashing {
+    private Hashing() {
+    }
+
+    // Spread the bits of a key so that sequential keys do not fill neighbouring slots
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
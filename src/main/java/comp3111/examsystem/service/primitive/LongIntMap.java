@@ -0,0 +1,130 @@
+package comp3111.examsystem.service.primitive;
+
+/**
+ * Hash map from long keys to int values with open addressing and linear probing, so neither
+ * keys nor values are boxed and entries take no objects of their own. The table doubles when
+ * it is half full. Entries cannot be removed.
+ */
+public class LongIntMap {
+    private final int missing;
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+
+    // A map whose get returns the given value for absent keys
+    public LongIntMap(int missing) {
+        this(missing, 16);
+    }
+
+    public LongIntMap(int missing, int expectedSize) {
+        this.missing = missing;
+        allocate(tableSize(expectedSize));
+    }
+
+    public int get(long key) {
+        int slot = find(key);
+        return used[slot] ? values[slot] : missing;
+    }
+
+    public boolean containsKey(long key) {
+        return used[find(key)];
+    }
+
+    public void put(long key, int value) {
+        int slot = find(key);
+        if (!used[slot]) {
+            insert(slot, key, value);
+        } else {
+            values[slot] = value;
+        }
+    }
+
+    // The key's value, first putting the given one if the key is absent
+    public int putIfAbsent(long key, int value) {
+        int slot = find(key);
+        if (used[slot]) {
+            return values[slot];
+        }
+        insert(slot, key, value);
+        return value;
+    }
+
+    // Add to the key's value, counting an absent key as 0, and return the new value
+    public int addTo(long key, int delta) {
+        int slot = find(key);
+        if (used[slot]) {
+            return values[slot] += delta;
+        }
+        insert(slot, key, delta);
+        return delta;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Call the visitor with every entry, in no particular order
+    public void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Receives the entries of a map without boxing them.
+     */
+    public interface EntryVisitor {
+        void visit(long key, int value);
+    }
+
+    private void insert(int slot, long key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    // The slot holding the key, or the empty slot where it would go
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = Hashing.mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    static int tableSize(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2L && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -340,8 +340,8 @@ class CourseManagementControllerTest {
         controller.allGrades = List.of(gradeToDelete);
 
         // call the method and ensure that the grade, quizToDelete, and the course are all deleted
-        doNothing().when(gradeDatabase).delByKey(anyString());
-        doNothing().when(quizDatabase).delByKey(anyString());
+        doNothing().when(gradeDatabase).deleteByKeys(anyList());
+        doNothing().when(quizDatabase).deleteByKeys(anyList());
         doNothing().when(courseDatabase).delByKey(anyString());
 
         // verify correct message is sent
@@ -351,8 +351,8 @@ class CourseManagementControllerTest {
             mockedMsgSender.verify(() -> MsgSender.showMsg(eq("Course deleted successfully")));
             // verify that courseDatabase.delByKey was called
             verify(courseDatabase).delByKey(String.valueOf(courseToDelete.getId()));
-            verify(quizDatabase).delByKey(String.valueOf(quizToDelete.getId()));
-            verify(gradeDatabase).delByKey(String.valueOf(gradeToDelete.getID()));
+            verify(quizDatabase).deleteByKeys(List.of(String.valueOf(quizToDelete.getId())));
+            verify(gradeDatabase).deleteByKeys(List.of(String.valueOf(gradeToDelete.getID())));
 
         }
     }
@@ -370,7 +370,7 @@ class CourseManagementControllerTest {
 
         controller.allGrades = List.of(gradeToDelete);
 
-        doThrow(RuntimeException.class).when(gradeDatabase).delByKey(anyString());
+        doThrow(RuntimeException.class).when(gradeDatabase).deleteByKeys(anyList());
 
         assertThrows(RuntimeException.class, () -> {
             controller.deleteCourseAndQuizzes(courseToDelete, List.of(quizToDelete));
@@ -390,14 +390,33 @@ class CourseManagementControllerTest {
 
         controller.allGrades = List.of(gradeToDelete);
 
-        doNothing().when(gradeDatabase).delByKey(anyString());
-        doThrow(RuntimeException.class).when(quizDatabase).delByKey(anyString());
+        doNothing().when(gradeDatabase).deleteByKeys(anyList());
+        doThrow(RuntimeException.class).when(quizDatabase).deleteByKeys(anyList());
 
         assertThrows(RuntimeException.class, () -> {
             controller.deleteCourseAndQuizzes(courseToDelete, List.of(quizToDelete));
         });
     }
 
+    @Test
+    void testDeleteCourseAndQuizzes_errorDeletingQuizzesKeepsCourse()
+    {
+        Course courseToDelete = new Course("Intro to CS", "COMP1001", "CSE", 0);
+        Quiz quizToDelete = new Quiz("Quiz 1", "60", "COMP1001", "no", 0, "1|2");
+        controller.allGrades = List.of(new Grade("student1", String.valueOf(quizToDelete.getId()), "50", "10"));
+
+        doNothing().when(gradeDatabase).deleteByKeys(anyList());
+        doThrow(RuntimeException.class).when(quizDatabase).deleteByKeys(anyList());
+
+        // the failed step ends the cascade before the course is deleted or anything is committed
+        try (MockedStatic<MsgSender> mockedMsgSender = mockStatic(MsgSender.class)) {
+            controller.deleteCourseAndQuizzes(courseToDelete, List.of(quizToDelete));
+            mockedMsgSender.verify(() -> MsgSender.showMsg(eq("Error deleting course")));
+            mockedMsgSender.verify(() -> MsgSender.showMsg(eq("Course deleted successfully")), never());
+            verify(courseDatabase, never()).delByKey(anyString());
+        }
+    }
+
     @Test
     void testValidateUpdateInput_existingCourse()
     {
@@ -80,8 +80,8 @@ class QuizViewControllerTest {
         Question sampleQuestion1 = new Question("Q1", "Q1A", "Q1B", "Q1C", "Q1D", "AB", "20", "Multiple", 11);
         Question sampleQuestion2 = new Question("Q2", "Q2A", "Q2B", "Q2C", "Q2D", "AB", "20", "Multiple", 22);
 
-        when(mockQuestionDatabase.queryByField("id", "11")).thenReturn(List.of(sampleQuestion1));
-        when(mockQuestionDatabase.queryByField("id", "22")).thenReturn(List.of(sampleQuestion2));
+        when(mockQuestionDatabase.findFirst("id", "11")).thenReturn(Optional.of(sampleQuestion1));
+        when(mockQuestionDatabase.findFirst("id", "22")).thenReturn(Optional.of(sampleQuestion2));
 
         controller.showQuestions(controller.currentQuiz);
 
@@ -116,7 +116,7 @@ class QuizViewControllerTest {
                 "20",
                 "Multiple",
                 11);
-        when(mockQuestionDatabase.queryByField("questionDescription", "Q1")).thenReturn(List.of(sampleQuestion1));
+        when(mockQuestionDatabase.findFirst("questionDescription", "Q1")).thenReturn(Optional.of(sampleQuestion1));
         controller.allQuestionDesc.add(sampleQuestion1.getQuestionDescription());
         controller.updateQuestionUI();
         assertEquals("Question 1", controller.currQNum.getText());
@@ -126,7 +126,7 @@ class QuizViewControllerTest {
     void testHandleNextNotLast(){
         Question sampleQuestion1 = new Question("Q1", "Q1A", "Q1B", "Q1C", "Q1D", "AB", "20", "Multiple", 11);
         Question sampleQuestion2 = new Question("Q2", "Q2A", "Q2B", "Q2C", "Q2D", "AB", "20", "Multiple", 22);
-        when(mockQuestionDatabase.queryByField("questionDescription", "Q2")).thenReturn(List.of(sampleQuestion1));
+        when(mockQuestionDatabase.findFirst("questionDescription", "Q2")).thenReturn(Optional.of(sampleQuestion1));
         controller.allQuestionDesc.add(sampleQuestion1.getQuestionDescription());
         controller.allQuestionDesc.add(sampleQuestion2.getQuestionDescription());
         controller.currentQuestionIndex = 0;
@@ -150,7 +150,7 @@ class QuizViewControllerTest {
     void testCheckAnswer(){
         Question sampleQuestion1 = new Question("Q1", "Q1A", "Q1B", "Q1C", "Q1D", "A", "20", "Multiple", 11);
         controller.questionIds = new String[]{"11"};
-        when(mockQuestionDatabase.queryByField("id", "11")).thenReturn(List.of(sampleQuestion1));
+        when(mockQuestionDatabase.findFirst("id", "11")).thenReturn(Optional.of(sampleQuestion1));
         List<String> sampleAnswer = new ArrayList<>();
         sampleAnswer.add("A");
         controller.selectedAnswers.put(Long.valueOf("11"), sampleAnswer);
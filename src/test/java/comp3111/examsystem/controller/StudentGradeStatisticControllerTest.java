@@ -78,11 +78,11 @@ class StudentGradeStatisticControllerTest {
 
     @Test
     void testShowCourses(){
-        Grade sampleGrade = new Grade("123", "1", "100", "1");
+        Grade sampleGrade = new Grade("123", "321", "100", "1");
         Quiz sampleQuiz = new Quiz("QuizTest", "1", "COMP3111", "yes", 321, "11|22");
         Course sampleCourse = new Course("Course1", "COMP3111", "cse", 213);
         when(mockGradeDatabase.getAll()).thenReturn(List.of(sampleGrade));
-        when(mockQuizDatabase.queryByField("id", sampleGrade.getQuestionId())).thenReturn(List.of(sampleQuiz));
+        when(mockQuizDatabase.getAll()).thenReturn(List.of(sampleQuiz));
         when(mockCourseDatabase.getAll()).thenReturn(List.of(sampleCourse));
         controller.showCourses();
         assert controller.coursesList.contains("COMP3111");
@@ -93,7 +93,7 @@ class StudentGradeStatisticControllerTest {
         Grade sampleGrade = new Grade("123", "1", "100", "1");
         Course sampleCourse = new Course("Course1", "COMP3111", "cse", 213);
         when(mockGradeDatabase.getAll()).thenReturn(List.of(sampleGrade));
-        when(mockQuizDatabase.queryByField("id", sampleGrade.getQuestionId())).thenReturn(new ArrayList<>());
+        when(mockQuizDatabase.getAll()).thenReturn(new ArrayList<>());
         when(mockCourseDatabase.getAll()).thenReturn(List.of(sampleCourse));
         controller.showCourses();
         assert !controller.coursesList.contains("Course1");
@@ -5,6 +5,7 @@ import comp3111.examsystem.model.Student;
 import comp3111.examsystem.service.Database;
 import comp3111.examsystem.service.JavaFXInitializer;
 import comp3111.examsystem.service.MsgSender;
+import comp3111.examsystem.service.Query;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
@@ -126,7 +127,7 @@ class StudentManagementControllerTest {
                 new Student("John123", "John", "Male", "21", "CSE", "password", 0),
                 new Student("Amy123", "Amy", "Female", "22", "SUST", "password", 0)
         );
-        when(mockDatabase.getAll()).thenReturn(allStudents);
+        when(mockDatabase.query(any())).thenAnswer(invocation -> invocation.<Query<Student>>getArgument(0).apply(allStudents));
 
         List<Student> filteredStudents = controller.loadStudentTable();
 
@@ -357,13 +358,14 @@ class StudentManagementControllerTest {
         Student studentToDelete = new Student("john123", "john", "Male", "21", "CSE", "password", 0);
 
         // configure the remaining mocks
-        doNothing().when(mockGradeDatabase).delByKey(anyString());
+        doNothing().when(mockGradeDatabase).deleteByKeys(anyList());
         doNothing().when(mockDatabase).delByKey(anyString());
 
         try (MockedStatic<MsgSender> mockedMsgSender = mockStatic(MsgSender.class)) {
 
             controller.deleteStudentAndGradesFromDatabase(studentToDelete);
             mockedMsgSender.verify(() -> MsgSender.showMsg("Student deleted successfully"));
+            verify(mockGradeDatabase).deleteByKeys(List.of(String.valueOf(newGrade.getID())));
 
         }
     }
@@ -379,7 +381,7 @@ class StudentManagementControllerTest {
         Student studentToDelete = new Student("john123", "john", "Male", "21", "CSE", "password", 0);
 
         // configure the mock to throw an exception
-        doThrow(new RuntimeException()).when(mockGradeDatabase).delByKey(anyString());
+        doThrow(new RuntimeException()).when(mockGradeDatabase).deleteByKeys(anyList());
 
         assertThrows(RuntimeException.class, () -> controller.deleteStudentAndGradesFromDatabase(studentToDelete));
 
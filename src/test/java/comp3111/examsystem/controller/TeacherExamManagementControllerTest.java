@@ -10,6 +10,7 @@ import comp3111.examsystem.model.Quiz;
 import comp3111.examsystem.service.Database;
 import comp3111.examsystem.service.JavaFXInitializer;
 import comp3111.examsystem.service.MsgSender;
+import comp3111.examsystem.service.Query;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -560,8 +561,8 @@ class TeacherExamManagementControllerTest {
         allQuizzes.add(new Quiz("Sample Quiz 1", "60", "COMP3111", "Yes", 1, "123|"));
         allQuizzes.add(new Quiz("Sample Quiz 2", "90", "COMP3112", "No", 2, "124|"));
 
-        // Stub the getAll method to return the allQuizzes list
-        when(mockQuizDatabase.getAll()).thenReturn(allQuizzes);
+        // Stub the query method to run the query over the allQuizzes list
+        when(mockQuizDatabase.query(any())).thenAnswer(invocation -> invocation.<Query<Quiz>>getArgument(0).apply(allQuizzes));
 
         // Set up the filter criteria
         controller.courseIDFilterChoiceBox.setValue("COMP3111");
@@ -289,7 +289,7 @@ class TeacherGradeStatisticControllerTest {
     @Test
     void testPopulateGradeStatisticListWithUniqueData() {
         // Mock data
-        Grade mockGrade = new Grade("1", "0", "30", "60");
+        Grade mockGrade = new Grade("0", "0", "30", "60");
         Quiz mockQuiz = new Quiz("quiz1", "60", "COMP3111", "Yes", 0, "1|2");
         Student mockStudent = new Student("aliceyao", "Alice","Female","21","CSE","password",0);
         Question mockQuestion1 = new Question("description1", "optionA1", "optionB1", "optionC1", "optionD1", "A", "10", "Single", 1);
@@ -302,8 +302,6 @@ class TeacherGradeStatisticControllerTest {
         when(controller.courseDatabase.getAll()).thenReturn(Collections.emptyList());
         when(controller.questionDatabase.queryByKey("1")).thenReturn(mockQuestion1);
         when(controller.questionDatabase.queryByKey("2")).thenReturn(mockQuestion2);
-        when(controller.quizDatabase.queryByKey("0")).thenReturn(mockQuiz);
-        when(controller.studentDatabase.queryByKey(anyString())).thenReturn(mockStudent);
 
         controller.gradeStatisticList = new ArrayList<>();
 
@@ -322,6 +320,40 @@ class TeacherGradeStatisticControllerTest {
 
         // Verify observable list is updated
         assertEquals(1, controller.gradeListObservable.size());
+        // quizzes and students are matched against the lists already loaded, not looked up per grade
+        verify(controller.quizDatabase, never()).queryByKey(anyString());
+        verify(controller.studentDatabase, never()).queryByKey(anyString());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testChartsCountTheListedGrades() {
+        Quiz quiz = new Quiz("quiz1", "60", "COMP3111", "Yes", 0, "1");
+        Student alice = new Student("aliceyao", "Alice", "Female", "21", "CSE", "password", 0);
+        Question question = new Question("description1", "optionA1", "optionB1", "optionC1", "optionD1", "A", "20", "Single", 1);
+        // the third grade belongs to a student who no longer exists, so it is not listed
+        when(controller.gradeDatabase.getAll()).thenReturn(List.of(new Grade("0", "0", "10", "60"),
+                new Grade("0", "0", "15", "50"), new Grade("9", "0", "100", "40")));
+        when(controller.quizDatabase.getAll()).thenReturn(List.of(quiz));
+        when(controller.studentDatabase.getAll()).thenReturn(List.of(alice));
+        when(controller.courseDatabase.getAll()).thenReturn(Collections.emptyList());
+        when(controller.questionDatabase.queryByKey("1")).thenReturn(question);
+        controller.gradeStatisticList = new ArrayList<>();
+        controller.barChart = new BarChart<>(new CategoryAxis(), new NumberAxis());
+        controller.lineChart = new LineChart<>(new CategoryAxis(), new NumberAxis());
+        controller.pieChart = new PieChart();
+
+        assertEquals(2, controller.populateGradeStatisticList().size());
+        controller.loadChart();
+
+        // averages of the two listed grades, not rounded down
+        XYChart.Data<String, Number> course = controller.barChart.getData().get(0).getData().get(0);
+        assertEquals("COMP3111", course.getXValue());
+        assertEquals(12.5, course.getYValue().doubleValue());
+        XYChart.Data<String, Number> exam = controller.lineChart.getData().get(0).getData().get(0);
+        assertEquals("COMP3111-quiz1", exam.getXValue());
+        assertEquals(12.5, exam.getYValue().doubleValue());
+        assertEquals(1, controller.pieChart.getData().size());
+        assertEquals("Alice", controller.pieChart.getData().get(0).getName());
+        assertEquals(12.5, controller.pieChart.getData().get(0).getPieValue());
+    }
+}
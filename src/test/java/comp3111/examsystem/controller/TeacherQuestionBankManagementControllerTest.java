@@ -18,12 +18,15 @@ import javafx.stage.Stage;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.MockedStatic;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
 
 class TeacherQuestionBankManagementControllerTest {
 
@@ -374,6 +377,48 @@ class TeacherQuestionBankManagementControllerTest {
         }
     }
 
+    @Test
+    void testFilterQuestionsFindsMatchesRankedBelowTheSearchLimit(@TempDir Path dir) {
+        controller.questionDatabase = new Database<>(Question.class, dir.toString());
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            questions.add(new Question("Java question " + i, "A", "B", "C", "D", "A", "10", "Single", 0));
+        }
+        // ranks last, since every question matches as well and ties keep table order
+        questions.add(new Question("Java question 600", "A", "B", "C", "D", "A", "5", "Single", 0));
+        controller.questionDatabase.addAll(questions);
+        controller.questionFilterTextField.setText("java");
+        controller.scoreFilterTextField.setText("5");
+        controller.typeFilterChoiceBox.setValue("");
+
+        try (MockedStatic<MsgSender> mockedMsgSender = mockStatic(MsgSender.class)) {
+            controller.filterQuestions(new ActionEvent());
+            mockedMsgSender.verifyNoInteractions();
+        }
+        assertEquals(List.of("Java question 600"),
+                controller.questionTable.getItems().stream().map(Question::getQuestionDescription).toList());
+    }
+
+    @Test
+    void testFilterQuestionsSaysWhenMatchesAreLeftOut(@TempDir Path dir) {
+        controller.questionDatabase = new Database<>(Question.class, dir.toString());
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < 501; i++) {
+            questions.add(new Question("Java question " + i, "A", "B", "C", "D", "A", "10", "Single", 0));
+        }
+        controller.questionDatabase.addAll(questions);
+        controller.questionFilterTextField.setText("java");
+        controller.scoreFilterTextField.setText("");
+        controller.typeFilterChoiceBox.setValue("");
+
+        try (MockedStatic<MsgSender> mockedMsgSender = mockStatic(MsgSender.class)) {
+            controller.filterQuestions(new ActionEvent());
+            mockedMsgSender.verify(() -> MsgSender.showMsg(
+                    "Showing the best 500 matching questions only. Refine the filter to see the others."));
+        }
+        assertEquals(500, controller.questionTable.getItems().size());
+    }
+
     @Test
     void testRefreshQuestionWithoutUnsavedChanges() {
         try (MockedStatic<MsgSender> mockedMsgSender = mockStatic(MsgSender.class)) {
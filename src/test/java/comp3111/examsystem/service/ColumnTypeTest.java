@@ -0,0 +1,106 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Grade;
+import comp3111.examsystem.model.Question;
+import comp3111.examsystem.model.Student;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnTypeTest {
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        Database.setResidentMode(false);
+        Database.setFormat(Grade.class, TableFormat.TEXT);
+    }
+
+    @Test
+    void testTypedValuesAreParsedOnLoad() {
+        for (TableFormat format : TableFormat.values()) {
+            Database.setFormat(Grade.class, format);
+            Database<Grade> database = new Database<>(Grade.class, dir.toString());
+            database.addAll(List.of(new Grade("s1", "q1", "85", "12"), new Grade()));
+            for (boolean resident : new boolean[]{false, true}) {
+                Database.setResidentMode(resident);
+                List<Grade> grades = database.getAll();
+                assertEquals(85, grades.get(0).getStudentScoreValue(), format + "/" + resident);
+                assertEquals(12, grades.get(0).getTimeSpentValue());
+                // the text getters still return what was stored, numbers or not
+                assertEquals("studentScore", grades.get(1).getStudentScore());
+                assertEquals(ColumnType.NO_INT, grades.get(1).getStudentScoreValue());
+            }
+            Database.setResidentMode(false);
+        }
+    }
+
+    @Test
+    void testSchemaDeclaresColumnTypes() {
+        EntityMetadata<Question> question = EntityMetadata.of(Question.class);
+        assertEquals(ColumnType.INT, question.field("questionScore").getColumnType());
+        assertEquals(ColumnType.ENUM, question.field("questionType").getColumnType());
+        assertEquals(ColumnType.LONG, question.field("id").getColumnType());
+        assertEquals(ColumnType.STRING, question.field("answer").getColumnType());
+        assertArrayEquals(new String[]{"Single", "Multiple"}, question.field("questionType").getLabels());
+        // the parsed values are not columns of their own
+        assertFalse(question.hasField("questionScoreValue"));
+
+        Question multiple = new Question("Q", "A", "B", "C", "D", "AB", "15", Question.MULTIPLE, 7);
+        assertEquals(15, question.field("questionScore").getLong(multiple));
+        assertEquals(1, question.field("questionType").getLong(multiple));
+        assertEquals(7, question.field("id").getLong(multiple));
+        question.field("questionType").set(multiple, "Essay");
+        assertEquals(-1, multiple.getQuestionTypeValue());
+        multiple.setQuestionType(Question.SINGLE);
+        assertEquals(0, multiple.getQuestionTypeValue());
+        assertThrows(IllegalStateException.class, () -> question.field("answer").getLong(multiple));
+
+        // inherited typed fields keep their value field in the superclass
+        Student student = new Student("u", "n", "F", "19", "CSE", "pw", 0);
+        assertEquals(19, EntityMetadata.of(Student.class).field("age").getLong(student));
+        student.setAge("twenty");
+        assertEquals(ColumnType.NO_INT, student.getAgeValue());
+        assertTrue(ColumnType.INT.isMissing(student.getAgeValue()));
+        assertTrue(ColumnType.ENUM.isMissing(-1));
+        assertFalse(ColumnType.INT.isMissing(0));
+    }
+
+    @Test
+    void testTypedColumnNeedsValueField() {
+        assertThrows(IllegalStateException.class, () -> EntityMetadata.of(Untyped.class));
+        assertEquals(ColumnType.NO_INT, ColumnType.toInt("99999999999"));
+        assertEquals(ColumnType.NO_INT, ColumnType.toInt(null));
+        assertEquals(0, ColumnType.toInt("0"));
+        assertEquals(99999999999L, ColumnType.toLong(" 99999999999 "));
+        assertEquals(ColumnType.NO_LONG, ColumnType.toLong("ninety"));
+    }
+
+    @Test
+    void testCopyKeepsParsedValue() {
+        EntityMetadata<Grade> metadata = EntityMetadata.of(Grade.class);
+        Grade from = new Grade("s1", "q1", "85", "bad");
+        Grade to = new Grade();
+        for (FieldAccessor field : metadata.fields()) {
+            field.copy(from, to);
+        }
+        assertEquals("85", to.getStudentScore());
+        assertEquals(85, to.getStudentScoreValue());
+        assertEquals(ColumnType.NO_INT, to.getTimeSpentValue());
+        assertEquals(from.getStudentId(), to.getStudentId());
+    }
+
+    /**
+     * Declares an INT column without a field to hold its parsed value.
+     */
+    static class Untyped {
+        @Column(ColumnType.INT)
+        public String count;
+    }
+}
@@ -0,0 +1,100 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Grade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarTableTest {
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        Database.setResidentMode(false);
+    }
+
+    @Test
+    void testGroupByAgreesWithObjects() {
+        List<Grade> grades = grades(200_000);
+        ColumnarTable<Grade> columns = ColumnarTable.of(Grade.class, grades, "studentId", "questionId", "studentScore", "timeSpent");
+        assertEquals(grades.size(), columns.size());
+
+        Map<String, long[]> expected = new HashMap<>();
+        for (Grade grade : grades) {
+            long[] sumAndCount = expected.computeIfAbsent(grade.getQuestionId(), k -> new long[2]);
+            sumAndCount[0] += Integer.parseInt(grade.getStudentScore());
+            sumAndCount[1]++;
+        }
+        ColumnarTable.Groups perQuiz = columns.groupBy("studentScore", "questionId");
+        assertEquals(expected.size(), perQuiz.size());
+        for (int i = 0; i < perQuiz.size(); i++) {
+            long[] sumAndCount = expected.get(perQuiz.key(i));
+            assertEquals(sumAndCount[0], perQuiz.sum(i));
+            assertEquals(sumAndCount[1], perQuiz.count(i));
+        }
+        // groups come in the order of their first row
+        assertEquals("q0", perQuiz.key(0));
+
+        ColumnarTable.Groups perStudentAndQuiz = columns.where("studentId", "s7").groupBy("timeSpent", "studentId", "questionId");
+        long count = 0;
+        for (int i = 0; i < perStudentAndQuiz.size(); i++) {
+            assertEquals("s7", perStudentAndQuiz.key(i, 0));
+            assertTrue(perStudentAndQuiz.min(i) <= perStudentAndQuiz.max(i));
+            count += perStudentAndQuiz.count(i);
+        }
+        assertEquals(grades.stream().filter(g -> g.getStudentId().equals("s7")).count(), count);
+        assertEquals(0, columns.where("studentId", "nobody").size());
+
+        // four ints a row and one copy of each distinct id, far below the rows as objects
+        assertTrue(columns.memoryBytes() < 20L * grades.size(), String.valueOf(columns.memoryBytes()));
+        assertThrows(IllegalArgumentException.class, () -> columns.groupBy("questionId", "studentId"));
+        assertThrows(IllegalArgumentException.class, () -> columns.groupBy("studentScore", "timeSpent"));
+    }
+
+    @Test
+    void testDatabaseColumnsFromFileAndMemory() {
+        Database<Grade> database = new Database<>(Grade.class, dir.toString());
+        database.addAll(grades(500));
+        ColumnarTable.Groups scanned = database.columns("questionId", "studentScore").groupBy("studentScore", "questionId");
+        Database.setResidentMode(true);
+        ColumnarTable.Groups resident = database.columns("questionId", "studentScore").groupBy("studentScore", "questionId");
+        assertEquals(scanned.size(), resident.size());
+        for (int i = 0; i < scanned.size(); i++) {
+            assertEquals(scanned.key(i), resident.key(i));
+            assertEquals(scanned.average(i), resident.average(i));
+        }
+    }
+
+    @Test
+    void testUnparsableValuesAreLeftOutOfAggregates() {
+        List<Grade> grades = List.of(new Grade("s1", "q1", "80", "10"), new Grade("s2", "q1", "absent", "10"),
+                new Grade("s3", "q2", "", "10"));
+        ColumnarTable<Grade> columns = ColumnarTable.of(Grade.class, grades, "questionId", "studentScore");
+        ColumnarTable.Groups perQuiz = columns.groupBy("studentScore", "questionId");
+        assertEquals(2, perQuiz.size());
+        assertEquals("q1", perQuiz.key(0));
+        assertEquals(1, perQuiz.count(0));
+        assertEquals(80.0, perQuiz.average(0));
+        // a group whose every value is bad still has its key, but nothing to average
+        assertEquals("q2", perQuiz.key(1));
+        assertEquals(0, perQuiz.count(1));
+        assertEquals(0, columns.where("studentScore", "absent").size());
+    }
+
+    private static List<Grade> grades(int count) {
+        List<Grade> grades = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            grades.add(new Grade("s" + (i % 1000), "q" + (i % 37), String.valueOf(i % 101), String.valueOf(i % 60)));
+        }
+        return grades;
+    }
+}
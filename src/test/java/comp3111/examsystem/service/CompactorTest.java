@@ -0,0 +1,77 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Course;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactorTest {
+    @TempDir
+    Path dir;
+
+    private Database<Course> courseDatabase;
+
+    @BeforeEach
+    void setUp() {
+        Database.setAppendOnly(Course.class, true);
+        courseDatabase = new Database<>(Course.class, dir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        Database.setResidentMode(false);
+        Database.setAppendOnly(Course.class, false);
+    }
+
+    @Test
+    void testPolicyTriggers() {
+        CompactionPolicy policy = new CompactionPolicy(0.5, 1000, 10);
+        assertFalse(policy.shouldCompact(100, 20, 20));
+        assertFalse(policy.shouldCompact(100, 20, 11));
+        assertTrue(policy.shouldCompact(100, 20, 10));
+        assertFalse(policy.shouldCompact(100, 4, 1));
+        assertTrue(policy.shouldCompact(1000, 20, 19));
+        assertThrows(IllegalArgumentException.class, () -> new CompactionPolicy(0, 0, 0));
+    }
+
+    @Test
+    void testCompactionKeepsLiveRecords() throws Exception {
+        Database.setResidentMode(true);
+        courseDatabase.add(new Course("A", "AAAA1111", "CSE", 0));
+        Course course = courseDatabase.getAll().get(0);
+        for (int i = 0; i < 20; i++) {
+            course.setCourseName("A" + i);
+            courseDatabase.update(course);
+        }
+        courseDatabase.add(new Course("B", "BBBB2222", "CSE", 0));
+        courseDatabase.delByKey(String.valueOf(courseDatabase.queryByField("courseID", "BBBB2222").get(0).getId()));
+        Path file = dir.resolve("course.txt");
+        assertEquals(23, Files.readAllLines(file).size());
+
+        Compactor compactor = new Compactor(new CompactionPolicy(0.5, 0, 10));
+        compactor.register(courseDatabase);
+        List<CompactionStats> results = compactor.runOnce();
+        assertEquals(1, results.size());
+        CompactionStats stats = results.get(0);
+        assertEquals(23, stats.getRecordsBefore());
+        assertEquals(1, stats.getRecordsAfter());
+        assertTrue(stats.getBytesReclaimed() > 0);
+        assertSame(stats, compactor.getLastStats("course"));
+
+        assertEquals(1, Files.readAllLines(file).size());
+        assertEquals("A19", courseDatabase.getAll().get(0).getCourseName());
+        // nothing left to reclaim
+        assertTrue(compactor.runOnce().isEmpty());
+
+        courseDatabase.add(new Course("C", "CCCC3333", "CSE", 0));
+        Database.setResidentMode(false);
+        assertEquals(2, courseDatabase.getAll().size());
+    }
+}
@@ -0,0 +1,104 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Course;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseConcurrencyTest {
+    private static final int WRITERS = 4;
+    private static final int READERS = 2;
+    private static final int ROUNDS = 50;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        Database.setResidentMode(false);
+        Database.setAppendOnly(Course.class, false);
+    }
+
+    @Test
+    void testNoLostUpdatesWhenRewriting() throws Exception {
+        stress();
+    }
+
+    @Test
+    void testNoLostUpdatesWhenResident() throws Exception {
+        Database.setResidentMode(true);
+        stress();
+    }
+
+    @Test
+    void testNoLostUpdatesWhenAppending() throws Exception {
+        Database.setAppendOnly(Course.class, true);
+        Database.setResidentMode(true);
+        stress();
+    }
+
+    // Writers each add rows and rename their own row over and over through separate Database
+    // instances on the same file while readers scan it; every add and the last rename must survive
+    private void stress() throws Exception {
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        long[] ownIds = new long[WRITERS];
+        for (int w = 0; w < WRITERS; w++) {
+            Database<Course> database = new Database<>(Course.class, dir.toString());
+            Course own = new Course("writer" + w, "OWN" + w, "CSE", 0);
+            database.add(own);
+            ownIds[w] = own.getId();
+            int writer = w;
+            threads.add(new Thread(() -> run(failures, start, () -> {
+                for (int i = 0; i < ROUNDS; i++) {
+                    database.add(new Course("row" + i, "W" + writer, "CSE", 0));
+                    Course course = database.queryByKey(String.valueOf(ownIds[writer]));
+                    course.setCourseName("writer" + writer + "-" + i);
+                    database.update(course);
+                }
+            })));
+        }
+        for (int r = 0; r < READERS; r++) {
+            Database<Course> database = new Database<>(Course.class, dir.toString());
+            threads.add(new Thread(() -> run(failures, start, () -> {
+                for (int i = 0; i < ROUNDS; i++) {
+                    int size = database.getAll().size();
+                    assertTrue(size >= WRITERS && size <= WRITERS * (ROUNDS + 1));
+                    database.queryByField("courseID", "W0");
+                }
+            })));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty(), () -> "worker failed: " + failures.peek());
+
+        Database<Course> database = new Database<>(Course.class, dir.toString());
+        assertEquals(WRITERS * (ROUNDS + 1), database.getAll().size());
+        for (int w = 0; w < WRITERS; w++) {
+            assertEquals(ROUNDS, database.queryByField("courseID", "W" + w).size());
+            assertEquals("writer" + w + "-" + (ROUNDS - 1), database.queryByKey(String.valueOf(ownIds[w])).getCourseName());
+        }
+    }
+
+    private static void run(Queue<Throwable> failures, CountDownLatch start, Runnable body) {
+        try {
+            start.await();
+            body.run();
+        } catch (Throwable t) {
+            failures.add(t);
+        }
+    }
+}
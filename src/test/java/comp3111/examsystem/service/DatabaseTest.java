@@ -0,0 +1,289 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Course;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseTest {
+    @TempDir
+    Path dir;
+
+    private Database<Course> courseDatabase;
+
+    @BeforeEach
+    void setUp() {
+        courseDatabase = new Database<>(Course.class, dir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        Database.setResidentMode(false);
+        Database.setAppendOnly(Course.class, false);
+        Database.setFormat(Course.class, TableFormat.TEXT);
+        Database.mapThreshold = 1 << 20;
+    }
+
+    @Test
+    void testAddAndQuery() {
+        courseDatabase.add(new Course("Software Engineering", "COMP3111", "CSE", 0));
+        List<Course> all = courseDatabase.getAll();
+        assertEquals(1, all.size());
+        assertEquals("COMP3111", all.get(0).getCourseID());
+        assertEquals("Software Engineering", courseDatabase.queryByKey(String.valueOf(all.get(0).getId())).getCourseName());
+        assertEquals(1, courseDatabase.queryByField("courseID", "COMP3111").size());
+    }
+
+    @Test
+    void testResidentModeWritesThrough() {
+        Database.setResidentMode(true);
+        courseDatabase.add(new Course("Algorithms", "COMP3711", "CSE", 0));
+        Course course = courseDatabase.getAll().get(0);
+        course.setCourseName("Advanced Algorithms");
+        courseDatabase.update(course);
+
+        Database.setResidentMode(false);
+        assertEquals("Advanced Algorithms", courseDatabase.getAll().get(0).getCourseName());
+    }
+
+    @Test
+    void testResidentModeReturnsCopies() {
+        Database.setResidentMode(true);
+        courseDatabase.add(new Course("Algorithms", "COMP3711", "CSE", 0));
+        Course course = courseDatabase.getAll().get(0);
+        course.setCourseName("Changed but never saved");
+        assertEquals("Algorithms", courseDatabase.getAll().get(0).getCourseName());
+    }
+
+    @Test
+    void testResidentModeSeesExternalEdits() throws Exception {
+        Database.setResidentMode(true);
+        courseDatabase.add(new Course("Algorithms", "COMP3711", "CSE", 0));
+        assertEquals(1, courseDatabase.getAll().size());
+
+        File file = dir.resolve("course.txt").toFile();
+        Files.writeString(file.toPath(), "id:1,courseName:Design,courseID:ISDN1234,department:ISD,\r\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertEquals(2, courseDatabase.getAll().size());
+        assertEquals("Design", courseDatabase.queryByKey("1").getCourseName());
+    }
+
+    @Test
+    void testKeyLookupsFollowMutations() throws Exception {
+        Database.setResidentMode(true);
+        Files.writeString(dir.resolve("course.txt"),
+                "id:1,courseName:A,courseID:AAAA1111,department:CSE,\r\n"
+                        + "id:2,courseName:B,courseID:BBBB2222,department:CSE,\r\n"
+                        + "id:2,courseName:C,courseID:CCCC3333,department:CSE,\r\n",
+                StandardCharsets.UTF_8);
+        assertEquals("B", courseDatabase.queryByKey("2").getCourseName());
+        assertNull(courseDatabase.queryByKey("02"));
+        assertNull(courseDatabase.queryByKey("abc"));
+
+        courseDatabase.delByKey("2");
+        assertEquals("C", courseDatabase.queryByKey("2").getCourseName());
+
+        Course course = courseDatabase.queryByKey("1");
+        course.setCourseName("Renamed");
+        courseDatabase.update(course);
+        assertEquals("Renamed", courseDatabase.queryByKey("1").getCourseName());
+
+        courseDatabase.delByKey("1");
+        assertNull(courseDatabase.queryByKey("1"));
+        assertEquals(1, courseDatabase.queryByKeys(List.of("1", "2")).size());
+    }
+
+    @Test
+    void testIndexedFieldQueriesKeepTableOrder() throws Exception {
+        Database.setResidentMode(true);
+        Files.writeString(dir.resolve("course.txt"),
+                "id:1,courseName:A,courseID:AAAA1111,department:CSE,\r\n"
+                        + "id:2,courseName:B,courseID:BBBB2222,department:CSE,\r\n"
+                        + "id:3,courseName:C,courseID:AAAA1111,department:ISD,\r\n",
+                StandardCharsets.UTF_8);
+        assertEquals(2, courseDatabase.queryByField("courseID", "AAAA1111").size());
+        assertEquals(1, courseDatabase.queryByField("id", "2").size());
+
+        Course course = courseDatabase.queryByKey("2");
+        course.setCourseID("AAAA1111");
+        courseDatabase.update(course);
+        List<Course> matches = courseDatabase.queryByField("courseID", "AAAA1111");
+        assertEquals(List.of(1L, 2L, 3L), matches.stream().map(Course::getId).toList());
+        assertTrue(courseDatabase.queryByField("courseID", "BBBB2222").isEmpty());
+
+        courseDatabase.delByKey("1");
+        assertEquals(2, courseDatabase.queryByField("courseID", "AAAA1111").size());
+        // unindexed fields still work through a scan
+        assertEquals(1, courseDatabase.queryByField("department", "ISD").size());
+    }
+
+    @Test
+    void testAppendOnlyModeAppendsRecords() throws Exception {
+        Database.setAppendOnly(Course.class, true);
+        Path file = dir.resolve("course.txt");
+        Files.writeString(file, "id:1,courseName:A,courseID:AAAA1111,department:CSE,\r\n"
+                + "id:2,courseName:B,courseID:BBBB2222,department:CSE,\r\n", StandardCharsets.UTF_8);
+
+        Course course = courseDatabase.queryByKey("1");
+        course.setCourseName("Renamed");
+        courseDatabase.update(course);
+        courseDatabase.delByKey("2");
+        courseDatabase.add(new Course("C", "CCCC3333", "ISD", 0));
+        assertEquals(5, Files.readAllLines(file).size());
+
+        for (boolean resident : new boolean[]{false, true}) {
+            Database.setResidentMode(resident);
+            List<Course> all = courseDatabase.getAll();
+            assertEquals(2, all.size());
+            assertEquals("Renamed", all.get(0).getCourseName());
+            assertEquals("C", all.get(1).getCourseName());
+            assertNull(courseDatabase.queryByKey("2"));
+        }
+
+        courseDatabase.delByFiled("courseID", "CCCC3333");
+        assertEquals(1, courseDatabase.getAll().size());
+        assertEquals(6, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void testTornLogTailIsSkippedAndCutOff() throws Exception {
+        Database.setAppendOnly(Course.class, true);
+        Path file = dir.resolve("course.txt");
+        for (String torn : new String[]{"id:3,courseNa", "!del:", "id:2,courseName:B,courseID"}) {
+            // an append cut short by a crash leaves a record without its line break that does not decode
+            Files.writeString(file, "id:1,courseName:A,courseID:AAAA1111,department:CSE,\r\n"
+                    + "id:2,courseName:B,courseID:BBBB2222,department:CSE,\r\n" + torn, StandardCharsets.UTF_8);
+            assertEquals(List.of("AAAA1111", "BBBB2222"), courseDatabase.getAll().stream().map(Course::getCourseID).toList());
+            courseDatabase.add(new Course("C", "CCCC3333", "ISD", 0));
+            assertEquals(3, Files.readAllLines(file).size());
+            assertEquals(3, courseDatabase.getAll().size());
+        }
+
+        // a whole record that only lost its line break, say to an outside edit, is kept
+        Files.writeString(file, "id:1,courseName:A,courseID:AAAA1111,department:CSE,\r\n"
+                + "id:2,courseName:B,courseID:BBBB2222,department:CSE,", StandardCharsets.UTF_8);
+        assertEquals(List.of("AAAA1111", "BBBB2222"), courseDatabase.getAll().stream().map(Course::getCourseID).toList());
+        courseDatabase.add(new Course("C", "CCCC3333", "ISD", 0));
+        assertEquals(3, Files.readAllLines(file).size());
+        assertEquals(List.of("AAAA1111", "BBBB2222", "CCCC3333"), courseDatabase.getAll().stream().map(Course::getCourseID).toList());
+
+        Database.setFormat(Course.class, TableFormat.BINARY);
+        Database<Course> binaryDatabase = new Database<>(Course.class, dir.toString());
+        binaryDatabase.add(new Course("A", "AAAA1111", "CSE", 0));
+        binaryDatabase.add(new Course("B", "BBBB2222", "CSE", 0));
+        Path binary = dir.resolve("course.bin");
+        byte[] data = Files.readAllBytes(binary);
+        // the first half of the last record again, as if its append was cut short
+        long whole = data.length;
+        Files.write(binary, Arrays.copyOfRange(data, data.length - 12, data.length - 6), StandardOpenOption.APPEND);
+        assertEquals(2, binaryDatabase.getAll().size());
+        binaryDatabase.add(new Course("C", "CCCC3333", "ISD", 0));
+        assertEquals(3, binaryDatabase.getAll().size());
+        assertTrue(Files.size(binary) > whole);
+    }
+
+    @Test
+    void testBinaryFormatStoresTable() throws Exception {
+        Database.setFormat(Course.class, TableFormat.BINARY);
+        Database<Course> binaryDatabase = new Database<>(Course.class, dir.toString());
+        binaryDatabase.add(new Course("Algorithms, Part I", "COMP3711", "CSE", 0));
+        binaryDatabase.add(new Course("Design", "ISDN1234", "ISD", 0));
+        Course course = binaryDatabase.queryByField("courseID", "COMP3711").get(0);
+        course.setDepartment("CSE:IT");
+        binaryDatabase.update(course);
+        binaryDatabase.delByFiled("courseID", "ISDN1234");
+
+        assertEquals(0, Files.size(dir.resolve("course.txt")));
+        List<Course> all = binaryDatabase.getAll();
+        assertEquals(1, all.size());
+        assertEquals("Algorithms, Part I", all.get(0).getCourseName());
+        assertEquals("CSE:IT", all.get(0).getDepartment());
+
+        Database.setAppendOnly(Course.class, true);
+        binaryDatabase.delByKey(String.valueOf(course.getId()));
+        assertTrue(binaryDatabase.getAll().isEmpty());
+        CompactionStats stats = binaryDatabase.compact();
+        assertEquals(0, stats.getRecordsAfter());
+        assertTrue(binaryDatabase.getAll().isEmpty());
+    }
+
+    @Test
+    void testMappedReadsDecodeMatchingRecords() throws Exception {
+        Database.mapThreshold = 0;
+        Files.writeString(dir.resolve("course.txt"),
+                "id:1,courseName:A\\, B,courseID:AAAA1111,department:CSE,\r\n"
+                        + "id:2,courseName:B,courseID:BBBB2222,\r\n"
+                        + "\r\n"
+                        + "id:3,courseName:C,courseID:AAAA1111,department:ISD,",
+                StandardCharsets.UTF_8);
+        for (TableFormat format : TableFormat.values()) {
+            if (format == TableFormat.BINARY) {
+                TableConverter.migrate(dir.toString(), format, Course.class);
+            }
+            Database.setFormat(Course.class, format);
+            Database<Course> database = new Database<>(Course.class, dir.toString());
+            assertEquals("A, B", database.queryByKey("1").getCourseName());
+            assertNull(database.queryByKey("01"));
+            assertEquals(List.of(1L, 3L), database.queryByField("courseID", "AAAA1111").stream().map(Course::getId).toList());
+            assertEquals(1, database.queryByField("courseName", "A, B").size());
+            // course 2 has no department, so it keeps the default one
+            assertEquals(List.of(2L), database.queryByField("department", new Course().getDepartment()).stream().map(Course::getId).toList());
+            assertEquals(2, database.queryByKeys(List.of("2", "3", "4")).size());
+            assertEquals(3, database.getAll().size());
+        }
+    }
+
+    @Test
+    void testBatchMutations() throws Exception {
+        for (boolean appendOnly : new boolean[]{false, true}) {
+            Files.writeString(dir.resolve("course.txt"), "", StandardCharsets.UTF_8);
+            Database.setAppendOnly(Course.class, appendOnly);
+            List<Course> courses = List.of(new Course("A", "AAAA1111", "CSE", 0),
+                    new Course("B", "BBBB2222", "CSE", 0), new Course("C", "CCCC3333", "ISD", 0));
+            courseDatabase.addAll(courses);
+            assertEquals(3, courses.stream().map(Course::getId).distinct().count());
+            assertEquals(3, Files.readAllLines(dir.resolve("course.txt")).size());
+
+            courses.get(0).setCourseName("A2");
+            courses.get(1).setCourseName("B2");
+            courseDatabase.updateAll(courses.subList(0, 2));
+            courseDatabase.deleteByKeys(List.of(String.valueOf(courses.get(1).getId()),
+                    String.valueOf(courses.get(2).getId()), "not a key"));
+
+            List<Course> all = courseDatabase.getAll();
+            assertEquals(1, all.size());
+            assertEquals("A2", all.get(0).getCourseName());
+        }
+    }
+
+    @Test
+    void testStreamingScansStopAtTheFirstMatch() throws Exception {
+        // the third line is malformed, so any scan that reaches it fails
+        Files.writeString(dir.resolve("course.txt"), "courseName:A,courseID:AAAA1111,id:1,\r\n"
+                + "courseName:B,courseID:BBBB2222,id:2,\r\n" + "broken\r\n", StandardCharsets.UTF_8);
+        assertEquals("A", courseDatabase.stream().findFirst().orElseThrow().getCourseName());
+        assertEquals(List.of(1L, 2L), courseDatabase.stream().limit(2).map(Course::getId).toList());
+        assertEquals("B", courseDatabase.findFirst("courseID", "BBBB2222").orElseThrow().getCourseName());
+        assertTrue(courseDatabase.exists("2"));
+        assertThrows(IllegalArgumentException.class, () -> courseDatabase.findFirst("courseID", "CCCC3333"));
+
+        Files.writeString(dir.resolve("course.txt"), "courseName:A,courseID:AAAA1111,id:1,\r\n", StandardCharsets.UTF_8);
+        Database.setResidentMode(true);
+        Course first = courseDatabase.stream().findFirst().orElseThrow();
+        first.setCourseName("changed");
+        assertEquals("A", courseDatabase.findFirst("id", "1").orElseThrow().getCourseName());
+        assertFalse(courseDatabase.findFirst("courseID", "BBBB2222").isPresent());
+        assertFalse(courseDatabase.exists("2"));
+    }
+}
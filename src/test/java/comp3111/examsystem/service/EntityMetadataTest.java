@@ -0,0 +1,31 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Manager;
+import comp3111.examsystem.model.Teacher;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityMetadataTest {
+    @Test
+    void testFieldsFollowRecordOrder() {
+        EntityMetadata<Teacher> metadata = EntityMetadata.of(Teacher.class);
+        List<String> names = metadata.fields().stream().map(FieldAccessor::getName).toList();
+        assertEquals(List.of("position", "id", "username", "name", "gender", "age", "department", "password"), names);
+        assertEquals(List.of("username"), metadata.indexedFields());
+        assertSame(metadata, EntityMetadata.of(Teacher.class));
+    }
+
+    @Test
+    void testAccessorsReadAndWriteFields() {
+        EntityMetadata<Manager> metadata = EntityMetadata.of(Manager.class);
+        Manager manager = metadata.newInstance();
+        metadata.field("id").set(manager, 42L);
+        metadata.field("username").set(manager, "admin");
+        assertEquals(42L, manager.getId());
+        assertEquals("admin", metadata.field("username").get(manager));
+        assertThrows(RuntimeException.class, () -> metadata.field("missing"));
+    }
+}
@@ -0,0 +1,53 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Course;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileUtilTest {
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        Database.setDurability(Durability.FSYNC);
+    }
+
+    @Test
+    void testWriteAtomicReplacesContents() throws Exception {
+        Path file = dir.resolve("table.txt");
+        Files.writeString(file, "old contents that are longer than the new ones");
+        for (Durability durability : Durability.values()) {
+            FileUtil.writeAtomic(("new " + durability).getBytes(StandardCharsets.UTF_8), file, durability);
+            assertEquals("new " + durability, Files.readString(file));
+        }
+        assertFalse(Files.exists(dir.resolve("table.txt.tmp")));
+    }
+
+    @Test
+    void testFailedWriteKeepsTheOldTable() throws Exception {
+        Database.setDurability(Durability.FSYNC_DIR);
+        Database<Course> database = new Database<>(Course.class, dir.toString());
+        database.add(new Course("Software Engineering", "COMP3111", "CSE", 0));
+        Path file = dir.resolve("course.txt");
+        byte[] before = Files.readAllBytes(file);
+
+        // a directory in the way of the temporary file makes the next rewrite fail before the rename
+        Files.createDirectory(dir.resolve("course.txt.tmp"));
+        Files.createFile(dir.resolve("course.txt.tmp").resolve("blocker"));
+        assertThrows(UncheckedIOException.class, () -> database.add(new Course("Algorithms", "COMP3711", "CSE", 0)));
+        assertArrayEquals(before, Files.readAllBytes(file));
+        assertThrows(IOException.class, () -> FileUtil.writeBinFile(new byte[0], file.toFile()));
+        assertArrayEquals(before, Files.readAllBytes(file));
+        assertEquals(1, database.getAll().size());
+    }
+}
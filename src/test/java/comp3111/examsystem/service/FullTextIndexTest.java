@@ -0,0 +1,124 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Question;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FullTextIndexTest {
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        Database.setResidentMode(false);
+    }
+
+    @Test
+    void testRanksRarerAndMoreFrequentWordsFirst() {
+        Database<Question> database = new Database<>(Question.class, dir.toString());
+        database.addAll(List.of(
+                question("Which keyword declares a class in Java?", "class", "interface"),
+                question("What does the Java virtual machine run?", "bytecode", "source"),
+                question("Java generics: which Java type is erased?", "List<String>", "int"),
+                question("Which sorting algorithm is stable?", "merge sort", "quick sort")));
+
+        List<Question> java = database.search("java", 10);
+        assertEquals(3, java.size());
+        // the question saying java twice ranks first
+        assertTrue(java.get(0).getQuestionDescription().startsWith("Java generics"));
+        // words of the options are indexed too, and a rare word outweighs a common one
+        assertEquals("Which sorting algorithm is stable?", database.search("java merge", 10).get(0).getQuestionDescription());
+        assertEquals(1, database.search("java", 1).size());
+        assertTrue(database.search("python", 10).isEmpty());
+        assertTrue(database.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void testPrefixesMatchWholeWords() {
+        Database<Question> database = new Database<>(Question.class, dir.toString());
+        database.addAll(List.of(question("Polymorphism in Java", "A", "B"),
+                question("What is a polygon?", "A", "B"),
+                question("Define poly", "A", "B")));
+
+        List<Question> poly = database.search("poly", 10);
+        assertEquals(3, poly.size());
+        // the exact word beats the words it begins
+        assertEquals("Define poly", poly.get(0).getQuestionDescription());
+        assertEquals(1, database.search("POLYGON", 10).size());
+    }
+
+    @Test
+    void testShortPrefixMatchesEveryCompletion() {
+        Database<Question> database = new Database<>(Question.class, dir.toString());
+        List<Question> questions = new ArrayList<>();
+        // 200 distinct words starting with j, one per question
+        for (int i = 0; i < 200; i++) {
+            questions.add(question("Term j" + i + "x", "A", "B"));
+        }
+        database.addAll(questions);
+        assertEquals(200, database.search("j", 1000).size());
+    }
+
+    @Test
+    void testFilterIsAppliedBeforeTheLimit() {
+        Database<Question> database = new Database<>(Question.class, dir.toString());
+        database.addAll(List.of(question("Java threads and Java locks", "A", "B"),
+                question("Java streams", "A", "B"),
+                question("Which of these words was never a keyword of Java?", "lambda", "B")));
+
+        // the two best matches are rejected, so the third still fills the single place
+        assertEquals("lambda", database.search("java", 3).get(2).getOptionA());
+        List<Question> lambda = database.search("java", 1, q -> q.getOptionA().equals("lambda"));
+        assertEquals(List.of("lambda"), lambda.stream().map(Question::getOptionA).toList());
+        assertEquals(2, database.search("java", 10, q -> !q.getOptionA().equals("lambda")).size());
+    }
+
+    @Test
+    void testResidentIndexFollowsUpdatesAndDeletes() {
+        Database<Question> database = new Database<>(Question.class, dir.toString());
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            questions.add(question("Question " + i + (i % 2 == 0 ? " about threads" : " about streams"), "A", "B"));
+        }
+        database.addAll(questions);
+        List<Long> scanned = ids(database.search("threads 42", 20));
+
+        Database.setResidentMode(true);
+        assertEquals(scanned, ids(database.search("threads 42", 20)));
+        assertEquals("Question 42 about threads", database.search("threads 42", 20).get(0).getQuestionDescription());
+
+        Question first = database.search("42", 1).get(0);
+        first.setQuestionDescription("Renamed question");
+        database.update(first);
+        // 42 now only begins the numbers 420 to 429
+        assertEquals(10, database.search("42", 20).size());
+        assertFalse(ids(database.search("42", 20)).contains(first.getId()));
+        assertEquals(first.getId(), database.search("renamed", 10).get(0).getId());
+
+        // deleting most rows makes the index drop them, and searches still agree with a fresh index
+        List<String> keys = new ArrayList<>();
+        for (Question question : database.search("threads", 3000)) {
+            keys.add(String.valueOf(question.getId()));
+        }
+        database.deleteByKeys(keys);
+        assertTrue(database.search("threads", 10).isEmpty());
+        List<Long> resident = ids(database.search("streams question", 50));
+        Database.setResidentMode(false);
+        assertEquals(ids(database.search("streams question", 50)), resident);
+    }
+
+    private static Question question(String description, String optionA, String optionB) {
+        return new Question(description, optionA, optionB, "C", "D", "A", "10", "Single", 0);
+    }
+
+    private static List<Long> ids(List<Question> questions) {
+        return questions.stream().map(Question::getId).toList();
+    }
+}
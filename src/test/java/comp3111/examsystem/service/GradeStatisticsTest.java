@@ -0,0 +1,126 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Question;
+import comp3111.examsystem.model.Quiz;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradeStatisticsTest {
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        GradeStatistics.clearAll();
+        Database.setResidentMode(false);
+    }
+
+    @Test
+    void testFullScoresFollowChanges() {
+        for (boolean resident : new boolean[]{false, true}) {
+            Database.setResidentMode(resident);
+            String directory = dir.resolve(resident ? "resident" : "files").toString();
+            new File(directory).mkdirs();
+            GradeStatistics statistics = GradeStatistics.forDirectory(directory);
+            Database<Question> questions = new Database<>(Question.class, directory);
+            Database<Quiz> quizzes = new Database<>(Quiz.class, directory);
+            Question easy = question("10");
+            Question hard = question("20");
+            questions.addAll(List.of(easy, hard));
+            // read once, so the view is loaded and follows the changes below
+            assertEquals(-1, statistics.fullScore(1));
+
+            Quiz quiz = new Quiz("midterm", "60", "COMP3111", "yes", 0, easy.getId() + "|" + hard.getId());
+            quizzes.add(quiz);
+            assertEquals(30, statistics.fullScore(quiz.getId()));
+
+            hard.setQuestionScore("25");
+            questions.update(hard);
+            assertEquals(35, statistics.fullScore(quiz.getId()));
+            quiz.setQuestionIDs(Long.toString(hard.getId()));
+            quizzes.update(quiz);
+            assertEquals(25, statistics.fullScore(quiz.getId()));
+            questions.delByKey(Long.toString(hard.getId()));
+            assertEquals(0, statistics.fullScore(quiz.getId()));
+            quizzes.delByKey(Long.toString(quiz.getId()));
+            assertEquals(-1, statistics.fullScore(quiz.getId()));
+        }
+    }
+
+    @Test
+    void testSavedViewIsReadBackAndRebuiltAfterOutsideChanges() throws Exception {
+        String directory = dir.toString();
+        Database<Question> questions = new Database<>(Question.class, directory);
+        Database<Quiz> quizzes = new Database<>(Quiz.class, directory);
+        Question question = question("10");
+        questions.add(question);
+        GradeStatistics statistics = GradeStatistics.forDirectory(directory);
+        statistics.refresh();
+        Quiz quiz = new Quiz("final", "60", "COMP3111", "yes", 0, Long.toString(question.getId()));
+        quizzes.add(quiz);
+
+        // writes are saved in one go when the view is flushed, or once enough of them pile up
+        Path saved = dir.resolve(GradeStatistics.FILE);
+        assertFalse(Files.readString(saved, StandardCharsets.UTF_8).contains("quiz:" + quiz.getId()));
+        statistics.flush();
+        assertTrue(Files.readString(saved, StandardCharsets.UTF_8).contains("quiz:" + quiz.getId()));
+        List<Quiz> more = new ArrayList<>();
+        for (int i = 0; i < GradeStatistics.SAVE_EVERY; i++) {
+            Quiz extra = new Quiz("quiz " + i, "60", "COMP3111", "yes", 0, "");
+            quizzes.add(extra);
+            more.add(extra);
+        }
+        String batched = Files.readString(saved, StandardCharsets.UTF_8);
+        assertTrue(batched.contains("quiz:" + more.get(more.size() - 1).getId()));
+
+        // the saved view is trusted while the tables match it, without reading the tables
+        String view = Files.readString(saved, StandardCharsets.UTF_8);
+        String score = "question:" + question.getId() + ",score:10,";
+        assertTrue(view.contains(score));
+        Files.writeString(saved, view.replace(score, "question:" + question.getId() + ",score:15,"), StandardCharsets.UTF_8);
+        GradeStatistics.clearAll();
+        assertEquals(15, GradeStatistics.forDirectory(directory).fullScore(quiz.getId()));
+
+        // a question written by another program is not reported, so the view is rebuilt
+        File questionFile = new File(questions.jsonFile);
+        question.setQuestionScore("40");
+        Files.writeString(questionFile.toPath(), questions.encodeText(question) + "\r\n", StandardCharsets.UTF_8);
+        questionFile.setLastModified(questionFile.lastModified() + 2000);
+        assertEquals(40, GradeStatistics.forDirectory(directory).fullScore(quiz.getId()));
+        GradeStatistics.clearAll();
+        assertEquals(40, GradeStatistics.forDirectory(directory).fullScore(quiz.getId()));
+    }
+
+    @Test
+    void testSaveFailuresSpareTableWritesAndSurfaceOnFlush() throws Exception {
+        String directory = dir.toString();
+        Database<Quiz> quizzes = new Database<>(Quiz.class, directory);
+        GradeStatistics statistics = GradeStatistics.forDirectory(directory);
+        statistics.refresh();
+        // a directory in the way of the view file makes every save fail
+        Path saved = dir.resolve(GradeStatistics.FILE);
+        Files.deleteIfExists(saved);
+        Files.createDirectories(saved.resolve("blocked"));
+
+        for (int i = 0; i <= GradeStatistics.SAVE_EVERY; i++) {
+            quizzes.add(new Quiz("quiz " + i, "60", "COMP3111", "yes", 0, ""));
+        }
+        assertEquals(GradeStatistics.SAVE_EVERY + 1, quizzes.getAll().size());
+        assertThrows(UncheckedIOException.class, statistics::flush);
+    }
+
+    private static Question question(String score) {
+        return new Question("description", "a", "b", "c", "d", "A", score, Question.SINGLE, 0);
+    }
+}
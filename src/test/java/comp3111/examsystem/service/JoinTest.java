@@ -0,0 +1,74 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Course;
+import comp3111.examsystem.model.Grade;
+import comp3111.examsystem.model.Quiz;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JoinTest {
+    @TempDir
+    Path dir;
+
+    private final List<Grade> grades = List.of(new Grade("1", "20", "50", "5"), new Grade("2", "10", "70", "5"),
+            new Grade("1", "10", "90", "5"), new Grade("3", "99", "10", "5"));
+    private final List<Quiz> quizzes = List.of(new Quiz("Midterm", "60", "COMP3111", "yes", 10, "1|2"),
+            new Quiz("Final", "90", "COMP3111", "yes", 20, "3"));
+
+    @Test
+    void testHashJoinAcrossEntityTypes() {
+        List<Join.Row<Grade, Quiz>> rows = Join.hashJoin(grades, "questionId", quizzes, "id");
+        assertEquals(List.of("Final", "Midterm", "Midterm"), rows.stream().map(row -> row.getRight().getQuizName()).toList());
+        assertEquals(List.of("50", "70", "90"), rows.stream().map(row -> row.getLeft().getStudentScore()).toList());
+        assertTrue(Join.hashJoin(grades, "questionId", List.<Quiz>of(), "id").isEmpty());
+        assertThrows(RuntimeException.class, () -> Join.hashJoin(grades, "missing", quizzes, "id"));
+
+        Course course = new Course("Software Engineering", "COMP3111", "CSE", 1);
+        assertEquals(2, Join.hashJoin(quizzes, "courseID", List.of(course), "courseID").size());
+    }
+
+    @Test
+    void testMergeJoinMatchesHashJoinOnSortedInput() {
+        List<Grade> sortedGrades = Query.from(Grade.class).orderBy("questionId").apply(grades);
+        List<Quiz> sortedQuizzes = Query.from(Quiz.class).orderBy("id").apply(quizzes);
+        List<Join.Row<Grade, Quiz>> merged = Join.mergeJoin(sortedGrades, "questionId", sortedQuizzes, "id");
+        List<Join.Row<Grade, Quiz>> hashed = Join.hashJoin(sortedGrades, "questionId", sortedQuizzes, "id");
+        assertEquals(hashed.size(), merged.size());
+        for (int i = 0; i < merged.size(); i++) {
+            assertSame(hashed.get(i).getLeft(), merged.get(i).getLeft());
+            assertSame(hashed.get(i).getRight(), merged.get(i).getRight());
+        }
+        assertThrows(IllegalArgumentException.class, () -> Join.mergeJoin(sortedGrades, "questionId", List.of(quizzes.get(1), quizzes.get(0)), "id"));
+    }
+
+    @Test
+    void testMergeJoinMatchesHashJoinOnKeysThatSortAlike() {
+        // 7 and 07 sort as the same number but are different keys, in any order within their run
+        List<Grade> left = Query.from(Grade.class).orderBy("questionId").apply(List.of(new Grade("a", "7", "1", "1"),
+                new Grade("b", "07", "2", "1"), new Grade("c", "7", "3", "1"), new Grade("d", "8", "4", "1")));
+        List<Grade> right = Query.from(Grade.class).orderBy("studentId").apply(List.of(new Grade("07", "x", "5", "1"),
+                new Grade("7", "y", "6", "1"), new Grade("007", "z", "7", "1"), new Grade("8", "w", "8", "1")));
+        List<Join.Row<Grade, Grade>> merged = Join.mergeJoin(left, "questionId", right, "studentId");
+        List<Join.Row<Grade, Grade>> hashed = Join.hashJoin(left, "questionId", right, "studentId");
+        assertEquals(4, hashed.size());
+        assertEquals(pairs(hashed), pairs(merged));
+    }
+
+    private static List<String> pairs(List<Join.Row<Grade, Grade>> rows) {
+        return rows.stream().map(row -> row.getLeft().getStudentId() + "-" + row.getRight().getQuestionId()).toList();
+    }
+
+    @Test
+    void testDatabaseJoinKeepsRowsWithSharedIds() {
+        Course a = new Course("A", "AAAA1111", "CSE", 1);
+        Course b = new Course("B", "BBBB2222", "CSE", 2);
+        Course c = new Course("C", "CCCC3333", "CSE", 3);
+        Database<Course> database = new Database<>(Course.class, dir.toString());
+        assertEquals(List.of(a, c), database.join(List.of(a, b, c), List.of(new Course("X", "X", "X", 3), a)));
+    }
+}
@@ -0,0 +1,81 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Course;
+import comp3111.examsystem.model.Quiz;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryTest {
+    @TempDir
+    Path dir;
+
+    private Database<Course> courseDatabase;
+
+    @BeforeEach
+    void setUp() {
+        courseDatabase = new Database<>(Course.class, dir.toString());
+        courseDatabase.addAll(List.of(new Course("Software Engineering", "COMP3111", "CSE", 0),
+                new Course("Algorithms", "COMP3711", "CSE", 0),
+                new Course("Data Structures", "COMP2011", "CSE", 0),
+                new Course("Statistics", "MATH2411", "MATH", 0),
+                new Course("Calculus", "MATH1013", "MATH", 0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        Database.setResidentMode(false);
+        Database.setAppendOnly(Course.class, false);
+    }
+
+    @Test
+    void testConditionsCombine() {
+        for (int mode = 0; mode < 3; mode++) {
+            Database.setResidentMode(mode == 1);
+            Database.setAppendOnly(Course.class, mode == 2);
+            assertEquals(List.of("COMP3111", "COMP3711"), ids(courseDatabase.query(Query.from(Course.class)
+                    .where("department", Query.eq("CSE"))
+                    .and("courseID", Query.range("COMP3000", "COMP3999"))
+                    .orderBy("courseID"))));
+            assertEquals(List.of("COMP3111", "MATH2411"), ids(courseDatabase.query(Query.from(Course.class)
+                    .where("courseName", Query.contains("Stat"))
+                    .or("courseName", Query.contains("Software")))));
+            // a grouped query keeps its or together: CSE and (Algorithms or Calculus)
+            assertEquals(List.of("COMP3711"), ids(courseDatabase.query(Query.from(Course.class)
+                    .where("department", Query.eq("CSE"))
+                    .and(Query.from(Course.class).where("courseName", Query.eq("Algorithms"))
+                            .or("courseName", Query.eq("Calculus"))))));
+            assertEquals(List.of("MATH2411", "MATH1013"), ids(courseDatabase.query(Query.from(Course.class)
+                    .orderBy("department", false).orderBy("courseID", false).limit(2))));
+            assertEquals(5, courseDatabase.query(Query.from(Course.class)).size());
+            assertEquals(1, courseDatabase.queryByEntity(new Course("", "MATH1013", "MATH", 0)).size());
+        }
+    }
+
+    @Test
+    void testQueryIsCheckedAndReusable() {
+        assertThrows(RuntimeException.class, () -> Query.from(Course.class).where("missing", Query.eq("x")));
+        assertThrows(IllegalArgumentException.class, () -> Query.from(Course.class).limit(-1));
+        Query<Quiz> other = Query.from(Quiz.class);
+        assertThrows(IllegalArgumentException.class, () -> new Database<>(Course.class, dir.toString())
+                .query((Query<Course>) (Query<?>) other));
+
+        Query<Course> query = Query.from(Course.class).where("courseID", Query.range(null, "COMP9999"));
+        assertEquals(3, query.apply(courseDatabase.getAll()).size());
+        assertSame(query.toPredicate(), query.toPredicate());
+        assertEquals(3, courseDatabase.query(query).size());
+        // numbers compare by value, not as text
+        assertTrue(Query.range(9, 10).test("10"));
+        assertFalse(Query.range(null, 9).test("10"));
+    }
+
+    private static List<String> ids(List<Course> courses) {
+        return courses.stream().map(Course::getCourseID).toList();
+    }
+}
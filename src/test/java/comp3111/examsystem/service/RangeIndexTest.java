@@ -0,0 +1,100 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Grade;
+import comp3111.examsystem.model.Student;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeIndexTest {
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        Database.setResidentMode(false);
+        Database.setIdGenerator(null);
+    }
+
+    @Test
+    void testIndexAgreesWithScan() {
+        Database<Grade> database = new Database<>(Grade.class, dir.toString());
+        List<Grade> grades = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            grades.add(new Grade("s" + i, "q" + (i % 7), i % 50 == 0 ? "absent" : String.valueOf((i * 37) % 101), "10"));
+        }
+        database.addAll(grades);
+        Object[][] ranges = {{40, 60}, {null, 10}, {90, null}, {"50", "50"}, {60, 40}, {"a", "z"}, {100, "zzz"}, {null, null}};
+        List<List<String>> scanned = new ArrayList<>();
+        for (Object[] range : ranges) {
+            scanned.add(scores(database.range("studentScore", range[0], range[1])));
+        }
+        // scores sort by value, and the text score after every number
+        assertEquals("40", scanned.get(0).get(0));
+        assertEquals("60", scanned.get(0).get(scanned.get(0).size() - 1));
+        assertEquals(List.of("0", "1", "2"), scanned.get(1).stream().distinct().limit(3).toList());
+        assertEquals("absent", scanned.get(7).get(scanned.get(7).size() - 1));
+        assertTrue(scanned.get(4).isEmpty());
+        Query<Grade> unordered = Query.from(Grade.class).where("studentScore", Query.range(40, 60))
+                .and("questionId", Query.eq("q3"));
+        List<Grade> unorderedScanned = database.query(unordered);
+
+        Database.setResidentMode(true);
+        for (int i = 0; i < ranges.length; i++) {
+            assertEquals(scanned.get(i), scores(database.range("studentScore", ranges[i][0], ranges[i][1])), i + "");
+        }
+        // without an order the index returns rows as a scan would
+        assertEquals(ids(unorderedScanned), ids(database.query(unordered)));
+    }
+
+    @Test
+    void testIndexFollowsChangesAndCoversInheritedAndKeyFields() {
+        Database.setResidentMode(true);
+        Database<Student> students = new Database<>(Student.class, dir.toString());
+        students.addAll(List.of(new Student("a", "A", "F", "17", "CSE", "pw", 0),
+                new Student("b", "B", "M", "19", "CSE", "pw", 0),
+                new Student("c", "C", "F", "21", "CSE", "pw", 0)));
+        assertEquals(List.of("b"), usernames(students.range("age", 18, 20)));
+
+        Student a = students.findFirst("username", "a").orElseThrow();
+        a.setAge("18");
+        students.update(a);
+        assertEquals(List.of("a", "b"), usernames(students.range("age", 18, 20)));
+        students.delByKey(String.valueOf(a.getId()));
+        assertEquals(List.of("b"), usernames(students.range("age", 18, 20)));
+
+        Database<Grade> grades = new Database<>(Grade.class, dir.toString());
+        long before = System.currentTimeMillis();
+        grades.add(new Grade("s", "q", "70", "10"));
+        List<Grade> recent = grades.range("id", SnowflakeIdGenerator.firstIdAt(before), null);
+        assertEquals(1, recent.size());
+        assertTrue(grades.range("id", SnowflakeIdGenerator.firstIdAt(System.currentTimeMillis() + 60000), null).isEmpty());
+
+        // a row from before the generator, whose id is the time it was added, needs the legacy branch
+        Database.setIdGenerator(() -> before + 1);
+        grades.add(new Grade("s", "q", "50", "10"));
+        Database.setIdGenerator(null);
+        assertEquals(1, grades.range("id", SnowflakeIdGenerator.firstIdAt(before), null).size());
+        List<Grade> legacy = grades.range("id", before, SnowflakeIdGenerator.LEGACY_LIMIT - 1);
+        assertEquals(List.of("50"), scores(legacy));
+        assertTrue(grades.range("id", before + 2, SnowflakeIdGenerator.LEGACY_LIMIT - 1).isEmpty());
+    }
+
+    private static List<String> scores(List<Grade> grades) {
+        return grades.stream().map(Grade::getStudentScore).toList();
+    }
+
+    private static List<String> usernames(List<Student> students) {
+        return students.stream().map(Student::getUsername).toList();
+    }
+
+    private static List<Long> ids(List<Grade> grades) {
+        return grades.stream().map(Grade::getID).toList();
+    }
+}
@@ -0,0 +1,38 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Course;
+import comp3111.examsystem.model.Question;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordCodecTest {
+    private final EntityMetadata<Question> metadata = EntityMetadata.of(Question.class);
+
+    @Test
+    void testSeparatorsRoundTrip() {
+        Question question = new Question();
+        question.questionDescription = "Which of a:b, c\\d is true?\r\nPick one";
+        question.optionA = "1,2,3";
+        question.id = 7;
+        String record = RecordCodec.encode(question, metadata);
+        assertFalse(record.contains("\n"));
+
+        Question decoded = RecordCodec.decode(record, metadata);
+        assertEquals(question.questionDescription, decoded.questionDescription);
+        assertEquals("1,2,3", decoded.optionA);
+        assertEquals("optionB", decoded.optionB);
+        assertEquals(7, decoded.id);
+    }
+
+    @Test
+    void testReadsUnescapedRecords() {
+        Course course = RecordCodec.decode("id:12,courseName:Software Engineering,courseID:COMP3111,department:CSE,",
+                EntityMetadata.of(Course.class));
+        assertEquals(12, course.getId());
+        assertEquals("Software Engineering", course.getCourseName());
+        assertEquals("CSE", course.getDepartment());
+        assertThrows(RuntimeException.class, () -> RecordCodec.decode("id:1,unknown:x,", EntityMetadata.of(Course.class)));
+        assertThrows(IllegalArgumentException.class, () -> RecordCodec.decode("id:1,broken,", EntityMetadata.of(Course.class)));
+    }
+}
@@ -0,0 +1,130 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Course;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTest {
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        Database.setIdGenerator(null);
+    }
+
+    @Test
+    void testIdsAreUniqueAndIncreasing() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5);
+        long previous = generator.nextId();
+        // far more than one millisecond's worth of sequence numbers
+        for (int i = 0; i < 20000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(5, SnowflakeIdGenerator.nodeOf(id));
+            previous = id;
+        }
+        assertTrue(previous > System.currentTimeMillis());
+
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    ids.add(generator.nextId());
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(20000, ids.size());
+    }
+
+    @Test
+    void testObservedIdsAreNotReissued() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        // an id issued an hour from now, as if the clock went back after a restart
+        long future = (System.currentTimeMillis() + 3600_000 - SnowflakeIdGenerator.EPOCH) << 22 | 7;
+        generator.observe(future);
+        generator.observe(System.currentTimeMillis());
+        assertTrue(generator.nextId() > future);
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(1024));
+    }
+
+    @Test
+    void testTimestampIdsAreRecognisedAsLegacy() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(2);
+        long legacy = System.currentTimeMillis();
+        assertTrue(SnowflakeIdGenerator.isLegacy(legacy));
+        // timestamps well into the future still count as legacy, and no issued id does
+        assertTrue(SnowflakeIdGenerator.isLegacy(legacy * 2));
+        long issued = generator.nextId();
+        assertFalse(SnowflakeIdGenerator.isLegacy(issued));
+        assertFalse(SnowflakeIdGenerator.isLegacy(SnowflakeIdGenerator.firstIdAt(SnowflakeIdGenerator.EPOCH + 3600_000)));
+        generator.observe(legacy);
+        assertTrue(generator.nextId() > Math.max(legacy, issued));
+        // a legacy id is its own timestamp
+        assertEquals(legacy, SnowflakeIdGenerator.timestampOf(legacy));
+        assertEquals(SnowflakeIdGenerator.EPOCH + 3600_000,
+                SnowflakeIdGenerator.timestampOf(SnowflakeIdGenerator.firstIdAt(SnowflakeIdGenerator.EPOCH + 3600_000)));
+    }
+
+    @Test
+    void testNodeIdsAreClaimedInTurnFromTheDirectory() throws Exception {
+        String directory = dir.toString();
+        // copies of the app starting one after another in the directory, on any machine
+        assertEquals(0, SnowflakeIdGenerator.claimNode(directory));
+        assertEquals(1, SnowflakeIdGenerator.claimNode(directory));
+        assertEquals("next:2,", Files.readString(dir.resolve(SnowflakeIdGenerator.NODE_FILE)).trim());
+        Files.writeString(dir.resolve(SnowflakeIdGenerator.NODE_FILE), "next:1023,\r\n");
+        assertEquals(1023, SnowflakeIdGenerator.claimNode(directory));
+        assertEquals(0, SnowflakeIdGenerator.claimNode(directory));
+
+        // this process claims one node for the directory, with its first id rather than on reads
+        Database<Course> database = new Database<>(Course.class, directory);
+        database.getAll();
+        assertEquals("next:1,", Files.readString(dir.resolve(SnowflakeIdGenerator.NODE_FILE)).trim());
+        database.add(new Course("A", "AAAA1111", "CSE", 0));
+        database.add(new Course("B", "BBBB2222", "CSE", 0));
+        assertEquals(List.of(1L, 1L), database.getAll().stream().map(c -> SnowflakeIdGenerator.nodeOf(c.getId())).toList());
+        assertEquals("next:2,", Files.readString(dir.resolve(SnowflakeIdGenerator.NODE_FILE)).trim());
+
+        Files.writeString(dir.resolve(SnowflakeIdGenerator.NODE_FILE), "garbage");
+        assertThrows(RuntimeException.class, () -> SnowflakeIdGenerator.claimNode(directory));
+    }
+
+    @Test
+    void testReopenedTableContinuesAfterStoredIds() throws Exception {
+        // a row written by an earlier run whose clock was an hour ahead
+        long stored = (System.currentTimeMillis() + 3600_000 - SnowflakeIdGenerator.EPOCH) << 22 | 3L << 12;
+        Files.writeString(dir.resolve("course.txt"), "courseName:Old,courseID:COMP1000,department:CSE,id:" + stored + ",\r\n");
+        Database.setIdGenerator(new SnowflakeIdGenerator(3));
+        Database<Course> database = new Database<>(Course.class, dir.toString());
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            courses.add(new Course("Course" + i, "COMP" + i, "CSE", 0));
+        }
+        database.addAll(courses);
+        Set<Long> ids = new HashSet<>();
+        for (Course course : database.getAll()) {
+            ids.add(course.getId());
+            assertTrue(course.getId() >= stored);
+        }
+        assertEquals(51, ids.size());
+    }
+}
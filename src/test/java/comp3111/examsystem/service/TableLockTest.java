@@ -0,0 +1,82 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Course;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableLockTest {
+    private static final int PROCESSES = 2;
+    private static final int ROWS = 40;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testNoLostUpdatesAcrossProcesses() throws Exception {
+        List<Process> processes = new ArrayList<>();
+        for (int p = 0; p < PROCESSES; p++) {
+            processes.add(new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"), Worker.class.getName(),
+                    dir.toString(), String.valueOf(ROWS), "p" + p)
+                    .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.INHERIT).start());
+        }
+        for (Process process : processes) {
+            assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+            assertEquals(0, process.exitValue());
+        }
+        List<Course> courses = new Database<>(Course.class, dir.toString()).getAll();
+        assertEquals(PROCESSES * ROWS, courses.size());
+        assertTrue(Files.exists(dir.resolve("course.txt.lock")));
+    }
+
+    @Test
+    void testReadersShareTheFileLock() throws Exception {
+        TableLock lock = TableLock.forFile(dir.resolve("course.txt").toString());
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        lock.lockRead();
+        try {
+            Thread other = new Thread(() -> {
+                lock.lockRead();
+                held.countDown();
+                lock.unlockRead();
+                done.countDown();
+            });
+            other.start();
+            assertTrue(held.await(10, TimeUnit.SECONDS));
+        } finally {
+            lock.unlockRead();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        // a writer can lock afterwards, and reading while writing does not lock the file twice
+        lock.lockWrite();
+        try {
+            lock.lockRead();
+            lock.unlockRead();
+        } finally {
+            lock.unlockWrite();
+        }
+    }
+
+    /**
+     * Adds rows to the course table in its own process.
+     */
+    static class Worker {
+        public static void main(String[] args) throws Exception {
+            Database<Course> database = new Database<>(Course.class, args[0]);
+            int rows = Integer.parseInt(args[1]);
+            for (int i = 0; i < rows; i++) {
+                database.add(new Course(args[2] + "-" + i, args[2] + i, "CSE", 0));
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Course;
+import comp3111.examsystem.model.Quiz;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionTest {
+    @TempDir
+    Path dir;
+
+    private Database<Course> courseDatabase;
+    private Database<Quiz> quizDatabase;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(dir.resolve("course.txt"), "id:1,courseName:A,courseID:AAAA1111,department:CSE,\r\n",
+                StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("quiz.txt"), "id:2,quizName:Q1,courseID:AAAA1111,\r\n"
+                + "id:3,quizName:Q2,courseID:AAAA1111,\r\n", StandardCharsets.UTF_8);
+        courseDatabase = new Database<>(Course.class, dir.toString());
+        quizDatabase = new Database<>(Quiz.class, dir.toString());
+    }
+
+    @Test
+    void testCommitAppliesAllTables() throws Exception {
+        try (Transaction transaction = Transaction.begin(dir.toString())) {
+            quizDatabase.deleteByKeys(List.of("2", "3"));
+            courseDatabase.delByKey("1");
+            courseDatabase.add(new Course("B", "BBBB2222", "CSE", 0));
+            // nothing is written until commit
+            assertEquals(2, quizDatabase.getAll().size());
+            transaction.commit();
+        }
+        assertTrue(quizDatabase.getAll().isEmpty());
+        assertEquals(List.of("B"), courseDatabase.getAll().stream().map(Course::getCourseName).toList());
+        assertFalse(Files.exists(dir.resolve(Transaction.JOURNAL)));
+    }
+
+    @Test
+    void testClosingWithoutCommitRollsBack() {
+        try (Transaction transaction = Transaction.begin(dir.toString())) {
+            quizDatabase.deleteByKeys(List.of("2", "3"));
+        }
+        assertEquals(2, quizDatabase.getAll().size());
+        // the thread is free for the next transaction
+        Transaction.begin(dir.toString()).close();
+    }
+
+    @Test
+    void testFailedTableWriteKeepsTheJournal() throws Exception {
+        // a directory in the way of the temporary file makes the course table rewrite fail
+        Path blocker = dir.resolve("course.txt.tmp");
+        Files.createDirectory(blocker);
+        Files.createFile(blocker.resolve("blocker"));
+        try (Transaction transaction = Transaction.begin(dir.toString())) {
+            quizDatabase.delByKey("2");
+            courseDatabase.add(new Course("B", "BBBB2222", "CSE", 0));
+            assertThrows(IOException.class, transaction::commit);
+        }
+        assertTrue(Files.exists(dir.resolve(Transaction.JOURNAL)));
+        assertEquals(List.of("A"), courseDatabase.getAll().stream().map(Course::getCourseName).toList());
+        assertThrows(IOException.class, () -> Transaction.recover(dir.toString()));
+        assertTrue(Files.exists(dir.resolve(Transaction.JOURNAL)));
+
+        Files.delete(blocker.resolve("blocker"));
+        Files.delete(blocker);
+        assertEquals(2, Transaction.recover(dir.toString()));
+        assertFalse(Files.exists(dir.resolve(Transaction.JOURNAL)));
+        assertEquals(List.of("Q2"), quizDatabase.getAll().stream().map(Quiz::getQuizName).toList());
+        assertEquals(List.of("A", "B"), courseDatabase.getAll().stream().map(Course::getCourseName).toList());
+    }
+
+    @Test
+    void testRecoverReplaysCommittedJournal() throws Exception {
+        String entity = "entity:" + Quiz.class.getName() + ",directory:" + dir.toString().replace("\\", "\\\\").replace(":", "\\:");
+        String journal = "op:DELETE," + entity + ",id:2,\r\n"
+                + "op:UPDATE," + entity + ",id:3,record:id\\:3\\,quizName\\:Renamed\\,,\r\n";
+        Files.writeString(dir.resolve(Transaction.JOURNAL), journal + "commit:2,\r\n", StandardCharsets.UTF_8);
+        assertEquals(2, Transaction.recover(dir.toString()));
+        assertEquals(0, Transaction.recover(dir.toString()));
+        List<Quiz> quizzes = quizDatabase.getAll();
+        assertEquals(1, quizzes.size());
+        assertEquals("Renamed", quizzes.get(0).getQuizName());
+
+        // a journal cut short before its commit line was never applied, so it is thrown away
+        Files.writeString(dir.resolve(Transaction.JOURNAL), "op:DELETE," + entity + ",id:3,\r\n", StandardCharsets.UTF_8);
+        assertEquals(0, Transaction.recover(dir.toString()));
+        assertEquals(1, quizDatabase.getAll().size());
+        assertFalse(Files.exists(dir.resolve(Transaction.JOURNAL)));
+    }
+}
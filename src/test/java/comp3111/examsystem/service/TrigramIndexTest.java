@@ -0,0 +1,73 @@
+package comp3111.examsystem.service;
+
+import comp3111.examsystem.model.Question;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        Database.setResidentMode(false);
+    }
+
+    @Test
+    void testIndexAgreesWithScan() {
+        Database<Question> database = new Database<>(Question.class, dir.toString());
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            questions.add(question("Question " + i + (i % 3 == 0 ? " about Java" : " about Python"), 0));
+        }
+        database.addAll(questions);
+        String[] searches = {"Java", "Question 1", "out", "Py", "", "Rust", "about Java"};
+        List<List<Long>> scanned = new ArrayList<>();
+        for (String search : searches) {
+            scanned.add(ids(database.queryFuzzyByField("questionDescription", search)));
+        }
+
+        Database.setResidentMode(true);
+        for (int i = 0; i < searches.length; i++) {
+            assertEquals(scanned.get(i), ids(database.queryFuzzyByField("questionDescription", searches[i])), searches[i]);
+            assertEquals(scanned.get(i), ids(database.query(Query.from(Question.class)
+                    .where("questionDescription", Query.contains(searches[i])))), searches[i]);
+        }
+        assertEquals(-1, database.trigramIndexFootprint("optionA"));
+        assertTrue(database.trigramIndexFootprint("questionDescription") > 0);
+    }
+
+    @Test
+    void testIndexFollowsUpdatesAndDeletes() {
+        Database.setResidentMode(true);
+        Database<Question> database = new Database<>(Question.class, dir.toString());
+        database.addAll(List.of(question("What is Java?", 0), question("What is Python?", 0)));
+        long full = database.trigramIndexFootprint("questionDescription");
+
+        Question java = database.queryFuzzyByField("questionDescription", "Java").get(0);
+        java.setQuestionDescription("What is Kotlin?");
+        database.update(java);
+        assertTrue(database.queryFuzzyByField("questionDescription", "Java").isEmpty());
+        assertEquals(1, database.queryFuzzyByField("questionDescription", "Kotlin").size());
+
+        database.delByKey(String.valueOf(java.getId()));
+        assertTrue(database.queryFuzzyByField("questionDescription", "Kotlin").isEmpty());
+        assertEquals(1, database.queryFuzzyByField("questionDescription", "What").size());
+        assertTrue(database.trigramIndexFootprint("questionDescription") < full);
+    }
+
+    private static Question question(String description, long id) {
+        return new Question(description, "A", "B", "C", "D", "A", "10", "Single", id);
+    }
+
+    private static List<Long> ids(List<Question> questions) {
+        return questions.stream().map(Question::getId).toList();
+    }
+}
@@ -0,0 +1,104 @@
+package comp3111.examsystem.service.primitive;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bytes allocated and time taken to average a million scores per key, once the way the
+ * statistics charts used to, with a {@code HashMap<Long, List<Integer>>} of boxed sums and
+ * counts, and once with {@link LongIntMap} and {@link Accumulators}. Tagged as a benchmark, so
+ * the default test run skips it; run it with {@code mvn test -Dtest=AggregationBenchmarkTest
+ * -Dtest.excludedGroups=}.
+ */
+@Tag("benchmark")
+class AggregationBenchmarkTest {
+    private static final int ROWS = 1_000_000;
+    private static final int KEYS = 2_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void testPrimitiveAggregationAllocatesFarLess() throws ReflectiveOperationException {
+        Random random = new Random(7);
+        long[] keys = new long[ROWS];
+        int[] scores = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            // quiz ids are large, so every boxed key is a fresh Long
+            keys[i] = 1_000_000_000L + random.nextInt(KEYS);
+            scores[i] = random.nextInt(101);
+        }
+        long[] boxed = measure(() -> boxed(keys, scores));
+        long[] primitive = measure(() -> primitive(keys, scores));
+        assertEquals(boxed[2], primitive[2], "both approaches must agree");
+        assertTrue(primitive[0] * 10 < boxed[0], Arrays.toString(primitive) + " vs " + Arrays.toString(boxed));
+    }
+
+    // The aggregation of the old loadBarChart: boxed sum and count per key
+    private static long boxed(long[] keys, int[] scores) {
+        Map<Long, List<Integer>> sums = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (sums.containsKey(keys[i])) {
+                List<Integer> sumAndCount = sums.get(keys[i]);
+                sumAndCount.set(0, sumAndCount.get(0) + scores[i]);
+                sumAndCount.set(1, sumAndCount.get(1) + 1);
+            } else {
+                sums.put(keys[i], new ArrayList<>(Arrays.asList(scores[i], 1)));
+            }
+        }
+        long checksum = 0;
+        for (List<Integer> sumAndCount : sums.values()) {
+            checksum += sumAndCount.get(0) / sumAndCount.get(1);
+        }
+        return checksum;
+    }
+
+    private static long primitive(long[] keys, int[] scores) {
+        LongIntMap slots = new LongIntMap(-1);
+        Accumulators sums = new Accumulators();
+        for (int i = 0; i < keys.length; i++) {
+            int slot = slots.putIfAbsent(keys[i], slots.size());
+            sums.add(slot, scores[i]);
+        }
+        long checksum = 0;
+        for (int slot = 0; slot < sums.size(); slot++) {
+            checksum += sums.sum(slot) / sums.count(slot);
+        }
+        return checksum;
+    }
+
+    // Bytes allocated and nanoseconds taken by the best of a few rounds, and the result
+    private static long[] measure(Run run) throws ReflectiveOperationException {
+        long bytes = Long.MAX_VALUE;
+        long nanos = Long.MAX_VALUE;
+        long result = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            result = run.run();
+            nanos = Math.min(nanos, System.nanoTime() - start);
+            bytes = Math.min(bytes, allocatedBytes() - allocatedBefore);
+        }
+        return new long[]{bytes, nanos, result};
+    }
+
+    // Bytes this thread has allocated so far, read through reflection since the application
+    // module does not read the management modules
+    private static long allocatedBytes() throws ReflectiveOperationException {
+        Object threads = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean").invoke(null);
+        Method allocated = Class.forName("com.sun.management.ThreadMXBean").getMethod("getCurrentThreadAllocatedBytes");
+        return (long) allocated.invoke(threads);
+    }
+
+    private interface Run {
+        long run();
+    }
+}
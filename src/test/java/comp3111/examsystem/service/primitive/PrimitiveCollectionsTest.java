@@ -0,0 +1,65 @@
+package comp3111.examsystem.service.primitive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitiveCollectionsTest {
+    @Test
+    void testMapAgreesWithHashMap() {
+        Random random = new Random(42);
+        LongIntMap ints = new LongIntMap(-1);
+        Map<Long, Integer> expectedInts = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            // a few distinct keys, including negative and sequential ones, hit many times
+            long key = i % 3 == 0 ? i % 5000 : random.nextInt(20_000) - 10_000L;
+            int value = random.nextInt(100);
+            ints.addTo(key, value);
+            expectedInts.merge(key, value, Integer::sum);
+        }
+        assertEquals(expectedInts.size(), ints.size());
+        for (Map.Entry<Long, Integer> entry : expectedInts.entrySet()) {
+            assertEquals(entry.getValue(), ints.get(entry.getKey()));
+        }
+        assertEquals(-1, ints.get(123_456_789L));
+        assertFalse(ints.containsKey(123_456_789L));
+        assertEquals(7, ints.putIfAbsent(123_456_789L, 7));
+        assertEquals(7, ints.putIfAbsent(123_456_789L, 8));
+        ints.put(123_456_789L, 9);
+        assertEquals(9, ints.get(123_456_789L));
+    }
+
+    @Test
+    void testIntListAndAccumulators() {
+        IntList list = new IntList(1);
+        for (int i = 0; i < 1000; i++) {
+            list.add(i * 2);
+        }
+        assertEquals(1000, list.size());
+        assertEquals(1998, list.get(999));
+        list.set(0, -5);
+        assertEquals(-5, list.toArray()[0]);
+        assertEquals(1000, list.toArray().length);
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(1000));
+        list.clear();
+        assertTrue(list.isEmpty());
+
+        Accumulators accumulators = new Accumulators(1);
+        accumulators.add(0, 10);
+        accumulators.add(0, 30);
+        accumulators.add(5, -4);
+        assertEquals(6, accumulators.size());
+        assertEquals(2, accumulators.count(0));
+        assertEquals(40, accumulators.sum(0));
+        assertEquals(20.0, accumulators.average(0));
+        assertEquals(10, accumulators.min(0));
+        assertEquals(30, accumulators.max(0));
+        assertEquals(0, accumulators.count(3));
+        assertEquals(-4, accumulators.min(5));
+        assertTrue(Double.isNaN(accumulators.average(9)));
+    }
+}